@@ -0,0 +1,140 @@
+package com.example.adama.response;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.app.Instrumentation;
+import android.util.Log;
+import android.view.Choreographer;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Frame intervals while FoodActivity switches between calendar days, the same work as a
+ * tap on the CalendarView: the calendar redraw plus setview loading the day and rebinding the list.
+ * Intervals come from Choreographer, so a dropped frame shows up as a gap of 33 ms or more.
+ * Results are written to logcat under the "CalendarFrameBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CalendarFrameBenchmark {
+
+    private static final int[] SIZES = {1000, 100000};
+    private static final int SWITCHES = 30;
+    private static final long TIMEOUT_MS = 10000;
+    private static final long FRAME_NS = 16666667;
+
+    private final Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+    private final Context context = InstrumentationRegistry.getTargetContext();
+
+    @After
+    public void tearDown() throws Exception {
+        DBArguments.closeInstance();
+        context.deleteDatabase(DBHandler.DATABASE_NAME);
+    }
+
+    @Test
+    public void switchDays() throws Exception {
+        // Choreographer is API 16
+        assumeTrue(Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN);
+
+        for (int rows : SIZES) {
+            SeededDatabase.seed(context, rows);
+            Intent intent = new Intent(context, FoodActivity.class);
+            intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+            final FoodActivity activity = (FoodActivity) instrumentation.startActivitySync(intent);
+            instrumentation.waitForIdleSync();
+
+            final FrameRecorder recorder = new FrameRecorder();
+            instrumentation.runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    recorder.start();
+                }
+            });
+
+            int today = FoodDate.today();
+            for (int i = 1; i <= SWITCHES; i++) {
+                final int day = today - i;
+                final Object before = activity.foodOverview.getCursor();
+                instrumentation.runOnMainSync(new Runnable() {
+                    @Override
+                    public void run() {
+                        activity.calendar.setDate(day * 86400000L, false, true);
+                        activity.currentDate = FoodDate.fromEpochDay(day);
+                        activity.setview(activity.currentDate);
+                    }
+                });
+                SeededDatabase.waitFor(MainThread.check(instrumentation, new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        return activity.foodOverview.getCursor() != before;
+                    }
+                }), TIMEOUT_MS);
+                instrumentation.waitForIdleSync();
+            }
+
+            instrumentation.runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    recorder.stop();
+                    activity.finish();
+                }
+            });
+            instrumentation.waitForIdleSync();
+            Log.i("CalendarFrameBenchmark", "rows=" + rows + " " + recorder.summary());
+        }
+    }
+
+    // Records the time between consecutive frames; only touched on the main thread
+    private static final class FrameRecorder implements Choreographer.FrameCallback {
+
+        private final ArrayList<Long> intervals = new ArrayList<>();
+        private long last;
+        private boolean running;
+
+        void start() {
+            running = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+
+        void stop() {
+            running = false;
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (!running) {
+                return;
+            }
+            if (last != 0) {
+                intervals.add(frameTimeNanos - last);
+            }
+            last = frameTimeNanos;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+
+        String summary() {
+            long[] sorted = new long[intervals.size()];
+            int janky = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                sorted[i] = intervals.get(i);
+                if (sorted[i] >= 2 * FRAME_NS) janky++;
+            }
+            if (sorted.length == 0) {
+                return "no frames";
+            }
+            return String.format("frames=%d janky=%d p50=%.1f ms p90=%.1f ms max=%.1f ms", sorted.length, janky,
+                    SeededDatabase.median(sorted) / 1e6, SeededDatabase.percentile(sorted, 90) / 1e6,
+                    SeededDatabase.percentile(sorted, 100) / 1e6);
+        }
+    }
+}
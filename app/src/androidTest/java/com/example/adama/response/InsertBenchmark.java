@@ -0,0 +1,70 @@
+package com.example.adama.response;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares rows/sec of the per-row InsertFoodTest path with the batched insertFoods path.
+ * Results are written to logcat under the "InsertBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class InsertBenchmark {
+
+    private static final String DATABASE = "insert_benchmark";
+    private static final int ROWS = 2000;
+
+    private Context context;
+    private DBArguments data;
+
+    @Before
+    public void setUp() throws Exception {
+        context = InstrumentationRegistry.getTargetContext();
+        context.deleteDatabase(DATABASE);
+        data = new DBArguments(context, DATABASE);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        data.close();
+        context.deleteDatabase(DATABASE);
+    }
+
+    @Test
+    public void batchInsertIsFasterThanPerRow() throws Exception {
+        ArrayList<FoodObject> foods = foods(ROWS);
+
+        long start = System.nanoTime();
+        for (FoodObject food : foods) {
+            data.InsertFoodTest(food);
+        }
+        long perRow = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        assertEquals(ROWS, data.insertFoods(foods));
+        long batch = System.nanoTime() - start;
+
+        Log.i("InsertBenchmark", String.format("per-row: %.0f rows/s, batch: %.0f rows/s",
+                ROWS / (perRow / 1e9), ROWS / (batch / 1e9)));
+        assertTrue(batch < perRow);
+    }
+
+    private static ArrayList<FoodObject> foods(int count) {
+        ArrayList<FoodObject> foods = new ArrayList<>(count);
+        int today = FoodDate.today();
+        for (int i = 0; i < count; i++) {
+            foods.add(new FoodObject("Food " + i, 50 + i % 400, 1 + i % 3, FoodDate.fromEpochDay(today - i % 60)));
+        }
+        return foods;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.adama.response;
+
+import android.app.Instrumentation;
+
+import java.util.concurrent.Callable;
+
+// Conditions for SeededDatabase.waitFor that read views or activity state, which has to
+// happen on the main thread
+final class MainThread {
+
+    private MainThread() {
+    }
+
+    static Callable<Boolean> check(final Instrumentation instrumentation, final Callable<Boolean> condition) {
+        return new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                final Object[] result = new Object[1];
+                instrumentation.runOnMainSync(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            result[0] = condition.call();
+                        } catch (Exception e) {
+                            result[0] = e;
+                        }
+                    }
+                });
+                if (result[0] instanceof Exception) {
+                    throw (Exception) result[0];
+                }
+                return (Boolean) result[0];
+            }
+        };
+    }
+}
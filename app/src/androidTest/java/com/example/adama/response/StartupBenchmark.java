@@ -0,0 +1,110 @@
+package com.example.adama.response;
+
+import android.app.Activity;
+import android.app.Instrumentation;
+import android.content.Context;
+import android.content.Intent;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Times the launch path users complain about: Startactivity, then MainActivity with the
+ * stored profile, then FoodActivity until today's foods are in the list.
+ * "cold" closes the shared database first so opening it is part of the measurement; the
+ * process itself stays alive, so class loading and the app's own start are not included.
+ * Results are written to logcat under the "StartupBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StartupBenchmark {
+
+    private static final int[] SIZES = {0, 10000, 100000};
+    private static final int RUNS = 5;
+    private static final long TIMEOUT_MS = 10000;
+
+    private final Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+    private final Context context = InstrumentationRegistry.getTargetContext();
+
+    @After
+    public void tearDown() throws Exception {
+        DBArguments.closeInstance();
+        context.deleteDatabase(DBHandler.DATABASE_NAME);
+    }
+
+    @Test
+    public void startToFoodList() throws Exception {
+        for (int rows : SIZES) {
+            SeededDatabase.seed(context, rows);
+            int expected = SeededDatabase.rowsOnDay(rows, 0);
+
+            long[] cold = new long[RUNS];
+            long[] warm = new long[RUNS];
+            for (int i = 0; i < RUNS; i++) {
+                DBArguments.closeInstance();
+                cold[i] = launch(expected);
+                warm[i] = launch(expected);
+            }
+            Log.i("StartupBenchmark", String.format("rows=%d cold=%.1f ms warm=%.1f ms", rows,
+                    SeededDatabase.median(cold) / 1e6, SeededDatabase.median(warm) / 1e6));
+        }
+    }
+
+    private long launch(final int expected) {
+        Instrumentation.ActivityMonitor mainMonitor = instrumentation.addMonitor(MainActivity.class.getName(), null, false);
+        Instrumentation.ActivityMonitor foodMonitor = instrumentation.addMonitor(FoodActivity.class.getName(), null, false);
+        Intent intent = new Intent(Intent.ACTION_MAIN);
+        intent.setClassName(context, Startactivity.class.getName());
+        intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
+
+        long start = System.nanoTime();
+        final Activity first = instrumentation.startActivitySync(intent);
+        click(first, R.id.proceed);
+
+        final MainActivity main = (MainActivity) instrumentation.waitForMonitorWithTimeout(mainMonitor, TIMEOUT_MS);
+        SeededDatabase.waitFor(MainThread.check(instrumentation, new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return main.hasUser;
+            }
+        }), TIMEOUT_MS);
+        click(main, R.id.mainbutton);
+
+        final FoodActivity food = (FoodActivity) instrumentation.waitForMonitorWithTimeout(foodMonitor, TIMEOUT_MS);
+        SeededDatabase.waitFor(MainThread.check(instrumentation, new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return food.foodOverview.getCursor() != null && food.foodOverview.getItemCount() == expected;
+            }
+        }), TIMEOUT_MS);
+        instrumentation.waitForIdleSync();
+        long elapsed = System.nanoTime() - start;
+
+        instrumentation.removeMonitor(mainMonitor);
+        instrumentation.removeMonitor(foodMonitor);
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                food.finish();
+                main.finish();
+                first.finish();
+            }
+        });
+        instrumentation.waitForIdleSync();
+        return elapsed;
+    }
+
+    private void click(final Activity activity, final int id) {
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                activity.findViewById(id).performClick();
+            }
+        });
+    }
+}
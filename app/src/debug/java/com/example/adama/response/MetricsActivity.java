@@ -0,0 +1,72 @@
+package com.example.adama.response;
+
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.view.View;
+import android.widget.Button;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import java.io.File;
+import java.io.IOException;
+
+// Debug builds only: shows Metrics and saves it to
+// Android/data/com.example.adama.response/files/ for adb pull
+public class MetricsActivity extends AppCompatActivity {
+
+    TextView text;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_metrics);
+
+        text = (TextView) findViewById(R.id.metricstext);
+
+        ((Button) findViewById(R.id.metricsrefresh)).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                refresh();
+            }
+        });
+
+        ((Button) findViewById(R.id.metricsreset)).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                Metrics.reset();
+                refresh();
+            }
+        });
+
+        ((Button) findViewById(R.id.metricssave)).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                save();
+            }
+        });
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        refresh();
+    }
+
+    private void refresh() {
+        text.setText(Metrics.dump());
+    }
+
+    private void save() {
+        File dir = getExternalFilesDir(null);
+        if (dir == null) {
+            dir = getFilesDir();
+        }
+        File file = new File(dir, "metrics-" + System.currentTimeMillis() + ".txt");
+        try {
+            Metrics.dumpToFile(file);
+            Toast.makeText(this, "Saved " + file.getPath(), Toast.LENGTH_LONG).show();
+        } catch (IOException e) {
+            Toast.makeText(this, "Could not save: " + e.getMessage(), Toast.LENGTH_LONG).show();
+        }
+    }
+}
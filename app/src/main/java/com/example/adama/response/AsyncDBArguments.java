@@ -0,0 +1,300 @@
+package com.example.adama.response;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+// Runs DBArguments calls on DBExecutor and hands the results back on the main thread.
+// A request submitted with a tag replaces any earlier request with the same tag that
+// hasn't delivered yet, so only the newest result ever reaches the callback.
+// Untagged requests (the inserts) always run; cancelling them only drops the callback.
+// A Cursor result that never reaches its callback is closed. A query that throws is logged
+// and delivers null, so every callback has to expect null.
+// Create one per activity and call cancelAll() from onDestroy.
+public class AsyncDBArguments {
+
+    public interface Query<T> {
+        T run(DBArguments data);
+    }
+
+    public interface Callback<T> {
+        void onResult(T result);
+    }
+
+    private static final String TAG = "AsyncDBArguments";
+
+    public static final String TAG_FOODS = "foods";
+    public static final String TAG_USER = "user";
+    public static final String TAG_SUMMARY = "summary";
+    public static final String TAG_CATALOGUE = "catalogue";
+    public static final String TAG_TOTALS = "totals";
+    public static final String TAG_PROFILES = "profiles";
+    public static final String TAG_MONTH = "month";
+
+    private final DBArguments data;
+
+    // Only touched on the main thread
+    private final Map<String, Request<?>> tagged = new HashMap<>();
+    private final ArrayList<Request<?>> untagged = new ArrayList<>();
+
+    public AsyncDBArguments(Context context) {
+        this.data = DBArguments.getInstance(context);
+    }
+
+    // Against a database other than the shared one, for tests
+    AsyncDBArguments(DBArguments data) {
+        this.data = data;
+    }
+
+    public <T> void submit(String tag, Query<T> query, Callback<T> callback) {
+        Request<T> request = new Request<>(tag, query, callback);
+        if (tag != null) {
+            Request<?> previous = tagged.put(tag, request);
+            if (previous != null) {
+                previous.cancel();
+            }
+        } else {
+            untagged.add(request);
+        }
+        try {
+            request.future = DBExecutor.submit(request);
+        } catch (RejectedExecutionException e) {
+            Log.e(TAG, "Database queue is full", e);
+            request.fail();
+        }
+    }
+
+    // A query that re-runs when the days it covers change; see ObservableQuery
+    public <T> ObservableQuery<T> observable(String tag, Callback<T> callback) {
+        return new ObservableQuery<>(this, data, tag, callback);
+    }
+
+    public void cancel(String tag) {
+        Request<?> request = tagged.remove(tag);
+        if (request != null) {
+            request.cancel();
+        }
+    }
+
+    public void cancelAll() {
+        for (Request<?> request : tagged.values()) {
+            request.cancel();
+        }
+        for (Request<?> request : untagged) {
+            request.cancel();
+        }
+        tagged.clear();
+        untagged.clear();
+    }
+
+    public void getallfoods(final String date, Callback<ArrayList<FoodObject>> callback) {
+        submit(TAG_FOODS, new Query<ArrayList<FoodObject>>() {
+            @Override
+            public ArrayList<FoodObject> run(DBArguments data) {
+                return data.getallfoods(date);
+            }
+        }, callback);
+    }
+
+    // The callback owns the cursor; hand it to FoodOverview.setCursor
+    public void getFoodsCursor(final String date, Callback<Cursor> callback) {
+        submit(TAG_FOODS, new Query<Cursor>() {
+            @Override
+            public Cursor run(DBArguments data) {
+                return data.getFoodsCursor(date);
+            }
+        }, callback);
+    }
+
+    public void callFoo(final String date, Callback<int[]> callback) {
+        submit(TAG_SUMMARY, new Query<int[]>() {
+            @Override
+            public int[] run(DBArguments data) {
+                return data.callFoo(date);
+            }
+        }, callback);
+    }
+
+    public void getTotals(final int fromDay, final int toDay, final int granularity, Callback<CalorieTotals> callback) {
+        submit(TAG_TOTALS, new Query<CalorieTotals>() {
+            @Override
+            public CalorieTotals run(DBArguments data) {
+                return data.getTotals(fromDay, toDay, granularity);
+            }
+        }, callback);
+    }
+
+    // Delivers null when no user has been stored yet
+    public void selectUser(Callback<UserObject> callback) {
+        submit(TAG_USER, new Query<UserObject>() {
+            @Override
+            public UserObject run(DBArguments data) {
+                return data.getUser();
+            }
+        }, callback);
+    }
+
+    public void getUsers(Callback<ArrayList<UserObject>> callback) {
+        submit(TAG_PROFILES, new Query<ArrayList<UserObject>>() {
+            @Override
+            public ArrayList<UserObject> run(DBArguments data) {
+                return data.getUsers();
+            }
+        }, callback);
+    }
+
+    // Delivers the profile that is now current
+    public void setCurrentUser(final int id, Callback<UserObject> callback) {
+        submit(null, new Query<UserObject>() {
+            @Override
+            public UserObject run(DBArguments data) {
+                data.setCurrentUser(id);
+                return data.getUser();
+            }
+        }, callback);
+    }
+
+    public void searchCatalogue(final String query, final int limit, Callback<List<CatalogueObject>> callback) {
+        submit(TAG_CATALOGUE, new Query<List<CatalogueObject>>() {
+            @Override
+            public List<CatalogueObject> run(DBArguments data) {
+                return data.searchCatalogue(query, limit);
+            }
+        }, callback);
+    }
+
+    public void InsertUser(final UserObject userObject, Callback<Long> callback) {
+        submit(null, new Query<Long>() {
+            @Override
+            public Long run(DBArguments data) {
+                return data.InsertUser(userObject);
+            }
+        }, callback);
+    }
+
+    // Returns straight away; see DBArguments.queueFood
+    public int queueFood(FoodObject foodObject) {
+        return data.queueFood(foodObject);
+    }
+
+    public void InsertFoodTest(final FoodObject foodObject, Callback<Long> callback) {
+        submit(null, new Query<Long>() {
+            @Override
+            public Long run(DBArguments data) {
+                return data.InsertFoodTest(foodObject);
+            }
+        }, callback);
+    }
+
+    // The number of rows written, or null if the export failed
+    public void exportLog(final File file, Callback<Long> callback) {
+        submit(null, new Query<Long>() {
+            @Override
+            public Long run(DBArguments data) {
+                try {
+                    return data.exportLog(file);
+                } catch (IOException e) {
+                    Log.w(TAG, "Could not export to " + file, e);
+                    return null;
+                }
+            }
+        }, callback);
+    }
+
+    // The number of rows read, or null if the import failed
+    public void importLog(final File file, Callback<Long> callback) {
+        submit(null, new Query<Long>() {
+            @Override
+            public Long run(DBArguments data) {
+                try {
+                    return data.importLog(file);
+                } catch (IOException e) {
+                    Log.w(TAG, "Could not import " + file, e);
+                    return null;
+                }
+            }
+        }, callback);
+    }
+
+    private class Request<T> implements Runnable {
+        private final String tag;
+        private final Query<T> query;
+        private final Callback<T> callback;
+        private volatile boolean cancelled;
+        private Future<?> future;
+
+        Request(String tag, Query<T> query, Callback<T> callback) {
+            this.tag = tag;
+            this.query = query;
+            this.callback = callback;
+        }
+
+        // Delivers null without running the query
+        void fail() {
+            DBExecutor.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (tag != null) {
+                        if (tagged.get(tag) == Request.this) {
+                            tagged.remove(tag);
+                        }
+                    } else {
+                        untagged.remove(Request.this);
+                    }
+                    if (!cancelled) {
+                        callback.onResult(null);
+                    }
+                }
+            });
+        }
+
+        void cancel() {
+            cancelled = true;
+            if (tag != null && future != null) {
+                // A query that is already running is left to finish; only its delivery is dropped
+                future.cancel(false);
+            }
+        }
+
+        @Override
+        public void run() {
+            if (cancelled && tag != null) {
+                return;
+            }
+            T ran;
+            try {
+                ran = query.run(data);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Query failed", e);
+                ran = null;
+            }
+            final T result = ran;
+            DBExecutor.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (cancelled) {
+                        if (result instanceof Cursor) {
+                            ((Cursor) result).close();
+                        }
+                        return;
+                    }
+                    if (tag != null) {
+                        tagged.remove(tag);
+                    } else {
+                        untagged.remove(Request.this);
+                    }
+                    callback.onResult(result);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.adama.response;
+
+import android.app.Application;
+import android.content.ComponentCallbacks2;
+
+// Owns the lifetime of the shared database connection from DBArguments.getInstance
+public class CalorieApplication extends Application {
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_COMPLETE) {
+            DBArguments.closeInstance();
+        }
+    }
+
+    @Override
+    public void onTerminate() {
+        DBArguments.closeInstance();
+        super.onTerminate();
+    }
+}
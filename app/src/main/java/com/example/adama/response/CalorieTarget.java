@@ -0,0 +1,101 @@
+package com.example.adama.response;
+
+import java.util.Locale;
+
+// Recommended calories per day by sex, age and activity level, read from tables built once
+// up front. dailyTarget(gender, age) remembers the last profile it resolved, so the
+// summary screen doesn't parse the same gender string on every open.
+// Plain Java, so it can be unit tested without a device.
+public final class CalorieTarget {
+
+    public static final int SEX_FEMALE = 0;
+    public static final int SEX_MALE = 1;
+    public static final int SEX_UNKNOWN = -1;
+
+    public static final int ACTIVITY_SEDENTARY = 0;
+    public static final int ACTIVITY_MODERATE = 1;
+    public static final int ACTIVITY_ACTIVE = 2;
+
+    public static final int MAX_AGE = 120;
+
+    // First age of each band: 0-8, 9-13, 14-18, 19-30, 31-50, 51+
+    private static final int[] BAND_START = {0, 9, 14, 19, 31, 51};
+
+    // [sex][activity][band]
+    private static final int[][][] BAND_TARGETS = {
+            {       // Female
+                    {1200, 1600, 1800, 2000, 1800, 1600},
+                    {1500, 1800, 2000, 2100, 2000, 1800},
+                    {1700, 2100, 2400, 2400, 2200, 2100}
+            },
+            {       // Male
+                    {1400, 1800, 2200, 2400, 2200, 2000},
+                    {1600, 2000, 2600, 2700, 2500, 2300},
+                    {1900, 2400, 3100, 3000, 2900, 2600}
+            }
+    };
+
+    // Multipliers on the basal rate for the same activity levels
+    private static final double[] ACTIVITY_FACTOR = {1.2, 1.55, 1.725};
+
+    // [sex][activity][age], expanded from BAND_TARGETS so a lookup is a single array read
+    private static final int[][][] TARGETS = new int[2][ACTIVITY_FACTOR.length][MAX_AGE + 1];
+
+    static {
+        for (int sex = 0; sex < 2; sex++) {
+            for (int activity = 0; activity < ACTIVITY_FACTOR.length; activity++) {
+                int band = 0;
+                for (int age = 0; age <= MAX_AGE; age++) {
+                    if (band + 1 < BAND_START.length && age >= BAND_START[band + 1]) {
+                        band++;
+                    }
+                    TARGETS[sex][activity][age] = BAND_TARGETS[sex][activity][band];
+                }
+            }
+        }
+    }
+
+    private String cachedGender;
+    private int cachedAge = -1;
+    private int cachedTarget;
+
+    // Sedentary target for a stored profile, or 0 when the gender isn't recognised
+    public synchronized int dailyTarget(String gender, int age) {
+        if (age != cachedAge || gender == null || !gender.equals(cachedGender)) {
+            int sex = parseSex(gender);
+            cachedTarget = sex == SEX_UNKNOWN ? 0 : tableTarget(sex, age, ACTIVITY_SEDENTARY);
+            cachedGender = gender;
+            cachedAge = age;
+        }
+        return cachedTarget;
+    }
+
+    public static int tableTarget(int sex, int age, int activity) {
+        return TARGETS[sex][activity][clampAge(age)];
+    }
+
+    // Mifflin-St Jeor basal rate times the activity factor, for when weight and height are known
+    public static int bmrTarget(int sex, int age, double weightKg, double heightCm, int activity) {
+        double bmr = 10 * weightKg + 6.25 * heightCm - 5 * clampAge(age) + (sex == SEX_MALE ? 5 : -161);
+        return (int) Math.round(bmr * ACTIVITY_FACTOR[activity]);
+    }
+
+    // Accepts what people type into the profile screen: "Female", "female ", "F", "male", "m"
+    public static int parseSex(String gender) {
+        if (gender == null) {
+            return SEX_UNKNOWN;
+        }
+        String value = gender.trim().toLowerCase(Locale.ROOT);
+        if (value.equals("female") || value.equals("f")) {
+            return SEX_FEMALE;
+        }
+        if (value.equals("male") || value.equals("m")) {
+            return SEX_MALE;
+        }
+        return SEX_UNKNOWN;
+    }
+
+    private static int clampAge(int age) {
+        return age < 0 ? 0 : Math.min(age, MAX_AGE);
+    }
+}
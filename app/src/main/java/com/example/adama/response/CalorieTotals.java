@@ -0,0 +1,59 @@
+package com.example.adama.response;
+
+// Calories summed per day, week or month over a range of epoch days. Buckets are stored as
+// parallel arrays in ascending order, and buckets without any food are left out.
+public class CalorieTotals {
+
+    public static final int DAY = 0;
+    // Weeks start on Monday
+    public static final int WEEK = 1;
+    public static final int MONTH = 2;
+
+    private final int granularity;
+    private final int[] startDays;
+    private final long[] totals;
+
+    CalorieTotals(int granularity, int[] startDays, long[] totals) {
+        this.granularity = granularity;
+        this.startDays = startDays;
+        this.totals = totals;
+    }
+
+    public int getGranularity() {
+        return granularity;
+    }
+
+    public int size() {
+        return startDays.length;
+    }
+
+    // Epoch day of the first day of bucket i
+    public int getStartDay(int i) {
+        return startDays[i];
+    }
+
+    public long getTotal(int i) {
+        return totals[i];
+    }
+
+    public long getSum() {
+        long sum = 0;
+        for (long total : totals) {
+            sum += total;
+        }
+        return sum;
+    }
+
+    // Epoch day the bucket holding day starts on
+    public static int bucketStart(int day, int granularity) {
+        if (granularity == WEEK) {
+            // Epoch day 0 was a Thursday
+            return day - ((day + 3) % 7 + 7) % 7;
+        }
+        if (granularity == MONTH) {
+            String date = FoodDate.fromEpochDay(day);
+            return day - Integer.parseInt(date.substring(0, 2)) + 1;
+        }
+        return day;
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.adama.response;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+// Reads RFC 4180 CSV a row at a time through a fixed buffer, so memory depends on the
+// longest row rather than the size of the input. The current row's fields are kept in one
+// reused char array; getInt and getLong parse from it directly, and only getString makes
+// a String. Quoted fields may contain commas, quotes ("") and line breaks.
+public final class CsvReader {
+
+    private final Reader in;
+    private final char[] buffer = new char[64 * 1024];
+    private int position;
+    private int limit;
+
+    private char[] row = new char[256];
+    private int rowLength;
+    private int[] starts = new int[8];
+    private int[] ends = new int[8];
+    private boolean[] quoted = new boolean[8];
+    private int fieldCount;
+    private long rowNumber;
+
+    public CsvReader(Reader in) {
+        this.in = in;
+    }
+
+    // Moves to the next row; false at the end of the input
+    public boolean next() throws IOException {
+        fieldCount = 0;
+        rowLength = 0;
+        int c = read();
+        if (c == -1) {
+            return false;
+        }
+        rowNumber++;
+        int fieldStart = 0;
+        boolean inQuotes = false;
+        boolean fieldQuoted = false;
+        while (true) {
+            if (inQuotes) {
+                if (c == -1) {
+                    throw new IOException("Unterminated quoted field in row " + rowNumber);
+                }
+                if (c == '"') {
+                    if (peek() == '"') {
+                        read();
+                        append('"');
+                    } else {
+                        inQuotes = false;
+                    }
+                } else {
+                    append((char) c);
+                }
+            } else if (c == '"' && rowLength == fieldStart && !fieldQuoted) {
+                inQuotes = true;
+                fieldQuoted = true;
+            } else if (c == ',') {
+                endField(fieldStart, fieldQuoted);
+                fieldStart = rowLength;
+                fieldQuoted = false;
+            } else if (c == '\n' || c == '\r' || c == -1) {
+                if (c == '\r' && peek() == '\n') {
+                    read();
+                }
+                endField(fieldStart, fieldQuoted);
+                return true;
+            } else {
+                append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    public int size() {
+        return fieldCount;
+    }
+
+    // 1-based, counting rows read so far; for error messages
+    public long rowNumber() {
+        return rowNumber;
+    }
+
+    // An unquoted empty field; written by CsvWriter for null
+    public boolean isNull(int field) {
+        return field >= fieldCount || (starts[field] == ends[field] && !quoted[field]);
+    }
+
+    public String getString(int field) {
+        if (isNull(field)) {
+            return null;
+        }
+        return new String(row, starts[field], ends[field] - starts[field]);
+    }
+
+    public boolean equals(int field, String value) {
+        if (field >= fieldCount || ends[field] - starts[field] != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (row[starts[field] + i] != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getInt(int field) throws IOException {
+        long value = getLong(field);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new IOException("Number out of range in row " + rowNumber + ", field " + (field + 1));
+        }
+        return (int) value;
+    }
+
+    public long getLong(int field) throws IOException {
+        if (field >= fieldCount) {
+            throw new IOException("Missing field " + (field + 1) + " in row " + rowNumber);
+        }
+        int i = starts[field];
+        int end = ends[field];
+        boolean negative = i < end && row[i] == '-';
+        if (negative) {
+            i++;
+        }
+        if (i == end || end - i > 18) {
+            throw new IOException("Not a number in row " + rowNumber + ", field " + (field + 1));
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            char c = row[i];
+            if (c < '0' || c > '9') {
+                throw new IOException("Not a number in row " + rowNumber + ", field " + (field + 1));
+            }
+            value = value * 10 + (c - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    private void endField(int start, boolean fieldQuoted) {
+        if (fieldCount == starts.length) {
+            int size = fieldCount * 2;
+            starts = Arrays.copyOf(starts, size);
+            ends = Arrays.copyOf(ends, size);
+            quoted = Arrays.copyOf(quoted, size);
+        }
+        starts[fieldCount] = start;
+        ends[fieldCount] = rowLength;
+        quoted[fieldCount] = fieldQuoted;
+        fieldCount++;
+    }
+
+    private void append(char c) {
+        if (rowLength == row.length) {
+            row = Arrays.copyOf(row, row.length * 2);
+        }
+        row[rowLength++] = c;
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++];
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position];
+    }
+
+    private boolean fill() throws IOException {
+        int read = in.read(buffer, 0, buffer.length);
+        while (read == 0) {
+            read = in.read(buffer, 0, buffer.length);
+        }
+        if (read < 0) {
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+}
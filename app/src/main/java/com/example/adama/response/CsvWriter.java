@@ -0,0 +1,85 @@
+package com.example.adama.response;
+
+import java.io.IOException;
+import java.io.Writer;
+
+// Writes RFC 4180 CSV one field at a time. A null String is written as an empty field and
+// an empty String as "", so CsvReader.isNull can tell them apart. Numbers are formatted
+// without creating Strings. Not thread safe; close the Writer yourself.
+public final class CsvWriter {
+
+    private final Writer out;
+    private final char[] digits = new char[20];
+    private boolean rowStarted;
+
+    public CsvWriter(Writer out) {
+        this.out = out;
+    }
+
+    public CsvWriter field(String value) throws IOException {
+        separate();
+        if (value == null) {
+            return this;
+        }
+        if (value.isEmpty() || needsQuotes(value)) {
+            out.write('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    out.write('"');
+                }
+                out.write(c);
+            }
+            out.write('"');
+        } else {
+            out.write(value);
+        }
+        return this;
+    }
+
+    public CsvWriter field(long value) throws IOException {
+        separate();
+        if (value == Long.MIN_VALUE) {
+            out.write(String.valueOf(value));
+            return this;
+        }
+        int pos = digits.length;
+        long remaining = Math.abs(value);
+        do {
+            digits[--pos] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        } while (remaining != 0);
+        if (value < 0) {
+            digits[--pos] = '-';
+        }
+        out.write(digits, pos, digits.length - pos);
+        return this;
+    }
+
+    public CsvWriter nullField() throws IOException {
+        separate();
+        return this;
+    }
+
+    public void endRow() throws IOException {
+        out.write('\n');
+        rowStarted = false;
+    }
+
+    private void separate() throws IOException {
+        if (rowStarted) {
+            out.write(',');
+        }
+        rowStarted = true;
+    }
+
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -2,29 +2,199 @@ package com.example.adama.response;
 
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.res.AssetFileDescriptor;
 import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.database.MergeCursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.Channels;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 
 
 public class DBArguments {
-    private DBHandler dbHandler;
-    private SQLiteDatabase sqLiteDatabase;
 
-    public DBArguments(Context context){
-        dbHandler = new DBHandler(context);
-        sqLiteDatabase = dbHandler.getWritableDatabase();
+    // Told after a write has committed which epoch day it changed, or ALL_DAYS when it may
+    // have changed any of them (the profile, a reset), and when queueFood adds to a day.
+    // Called on the writing thread.
+    public interface ChangeListener {
+        void onChanged(int day);
     }
 
+    public static final int ALL_DAYS = Integer.MAX_VALUE;
+
+    private static final String TAG = "DBArguments";
+    private static final String PREF_CURRENT_USER = "current_user";
+
+    private static final String CATALOGUE_ASSET = "foods.fcat";
+    private static final String[] FOOD_COLUMNS = new String[] {DBHandler.FOOD_ID, DBHandler.FOOD_NAME,
+            DBHandler.FOOD_CALORIE, DBHandler.FOOD_QUANTITY, DBHandler.FOOD_DATE};
+
+    private static DBArguments instance;
+
+    private final DBHandler dbHandler;
+    private final Context context;
+    private final FoodWriteQueue queue;
+    // Written by DeleteDatabase before it wipes anything
+    private final File safetySnapshot;
+    private FoodCatalogue catalogue;
+
+    // Current profile, read once and dropped again whenever userTable or the choice changes
+    private final SharedPreferences profile;
+    private final Object userLock = new Object();
+    private UserObject user;
+    private boolean userLoaded;
+
+    // Recently requested getTotals ranges, so charts scrolling back and forth stay in memory
+    private static final int TOTALS_CACHE_SIZE = 16;
+    private final LinkedHashMap<TotalsKey, CalorieTotals> totalsCache =
+            new LinkedHashMap<TotalsKey, CalorieTotals>(TOTALS_CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<TotalsKey, CalorieTotals> eldest) {
+                    return size() > TOTALS_CACHE_SIZE;
+                }
+            };
+    private volatile int totalsVersion;
+
+    // Days recently read by getallfoods and getFoodsCursor; see DayCache
+    // Room for a prefetched month and its neighbours besides the days visited
+    private static final int DAY_CACHE_SIZE = 64;
+    private final DayCache dayCache = new DayCache(DAY_CACHE_SIZE);
+
+    private final CopyOnWriteArrayList<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    // One helper for the whole process; the database itself is opened on first use
+    public static synchronized DBArguments getInstance(Context context){
+        if (instance == null) {
+            instance = new DBArguments(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    // Called by CalorieApplication when the process is trimmed or torn down.
+    // The next query opens the database again.
+    public static synchronized void closeInstance(){
+        if (instance != null) {
+            instance.dbHandler.close();
+        }
+    }
+
+    private DBArguments(Context context){
+        this(context, DBHandler.DATABASE_NAME);
+    }
+
+    // Standalone instance on its own database file, for tests and benchmarks
+    DBArguments(Context context, String databaseName){
+        this.context = context;
+        dbHandler = new DBHandler(context, databaseName);
+        queue = new FoodWriteQueue(this, new File(context.getFilesDir(), databaseName + ".queue"));
+        safetySnapshot = new File(context.getFilesDir(), databaseName + ".snapshot");
+        profile = context.getSharedPreferences(databaseName + ".profile", Context.MODE_PRIVATE);
+    }
+
+    public void addChangeListener(ChangeListener listener){
+        listeners.add(listener);
+    }
+
+    public void removeChangeListener(ChangeListener listener){
+        listeners.remove(listener);
+    }
+
+    // Also where the cached days and totals are dropped. Call it once the write has
+    // committed: dropping them earlier lets a read of the old rows, still visible until then,
+    // pass the version check and be cached as current.
+    private void publish(int day){
+        if (day == FoodDate.INVALID) {
+            return;
+        }
+        if (day == ALL_DAYS) {
+            dayCache.clear();
+            invalidateTotals();
+        } else {
+            dayCache.invalidate(day);
+            invalidateTotals(day);
+        }
+        notifyChanged(day);
+    }
+
+    private void notifyChanged(int day){
+        if (day == FoodDate.INVALID) {
+            return;
+        }
+        for (ChangeListener listener : listeners) {
+            listener.onChanged(day);
+        }
+    }
+
+    void close(){
+        dbHandler.close();
+    }
+
+    // SQLiteOpenHelper keeps the open database and reopens it after close()
+    private SQLiteDatabase database(){
+        return dbHandler.getWritableDatabase();
+    }
+
+    // Everything that was there can be brought back with restore(getSafetySnapshot())
     public void DeleteDatabase(){
-        dbHandler.onUpgrade(sqLiteDatabase,1,2);
+        long start = Metrics.begin();
+        try {
+            try {
+                backup(safetySnapshot);
+            } catch (IOException e) {
+                Log.w(TAG, "Could not snapshot before deleting", e);
+            }
+            queue.clear();
+            dbHandler.resetDatabase(database());
+            invalidateUser();
+            publish(ALL_DAYS);
+        } finally {
+            Metrics.end(Metrics.DELETE_DATABASE, start, 0);
+        }
     }
 
-    public void CreateDatabase(){ dbHandler.onCreate(sqLiteDatabase);}
+    public void CreateDatabase(){
+        long start = Metrics.begin();
+        try {
+            dbHandler.onCreate(database());
+        } finally {
+            Metrics.end(Metrics.CREATE_DATABASE, start, 0);
+        }
+    }
 
-    public void deleteRowsKat() {dbHandler.dropRows(sqLiteDatabase);}
+    public void deleteRowsKat() {
+        long start = Metrics.begin();
+        try {
+            queue.clear();
+            dbHandler.dropRows(database());
+            publish(ALL_DAYS);
+        } finally {
+            Metrics.end(Metrics.DELETE_ROWS, start, 0);
+        }
+    }
 
     //public void foo(){dbHandler.foo(sqLiteDatabase, );
 
@@ -37,16 +207,112 @@ public class DBArguments {
         content.put(DBHandler.USER_AGE, userObject.getAge());
         content.put(DBHandler.USER_GENDER, userObject.getGender());
 
-        return sqLiteDatabase.insert(DBHandler.TABLE_USER,null,content);
+        long start = Metrics.begin();
+        long id = -1;
+        try {
+            id = database().insert(DBHandler.TABLE_USER,null,content);
+            if (id != -1) {
+                // A new profile is the one being used from now on
+                profile.edit().putInt(PREF_CURRENT_USER, (int) id).apply();
+            }
+            invalidateUser();
+            // The targets in every day's summary depend on the profile
+            publish(ALL_DAYS);
+            return id;
+        } finally {
+            Metrics.end(Metrics.INSERT_USER, start, id == -1 ? 0 : 1);
+        }
+    }
+
+    // Makes another stored profile the current one: the day lists, totals and new entries
+    // are all that profile's from now on
+    public void setCurrentUser(int id){
+        long start = Metrics.begin();
+        try {
+            profile.edit().putInt(PREF_CURRENT_USER, id).apply();
+            invalidateUser();
+            publish(ALL_DAYS);
+        } finally {
+            Metrics.end(Metrics.SET_CURRENT_USER, start, 0);
+        }
+    }
+
+    // The current profile: the one last chosen with setCurrentUser or entered with InsertUser,
+    // or the newest if that one is gone. null if there is none yet. Only the first call after
+    // start-up or after a change touches the database.
+    public UserObject getUser(){
+        long start = Metrics.begin();
+        synchronized (userLock) {
+            try {
+                if (!userLoaded) {
+                    user = loadUser();
+                    userLoaded = true;
+                }
+                return user;
+            } finally {
+                Metrics.end(Metrics.GET_USER, start, user == null ? 0 : 1);
+            }
+        }
+    }
+
+    // 0, which no profile has, before there is one
+    int currentUserId(){
+        UserObject current = getUser();
+        return current == null ? 0 : current.getId();
+    }
+
+    private UserObject loadUser(){
+        String[] columns = new String[] {DBHandler.USER_ID, DBHandler.USER_NAME, DBHandler.USER_AGE, DBHandler.USER_GENDER};
+        // The chosen profile sorts first, then the rest newest first
+        Cursor cursor = database().query(DBHandler.TABLE_USER, columns, null, null, null, null,
+                DBHandler.USER_ID + " = " + profile.getInt(PREF_CURRENT_USER, 0) + " DESC, " + DBHandler.USER_ID + " DESC", "1");
+        try {
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            return new UserObject(cursor.getInt(0), cursor.getString(1), cursor.getInt(2), cursor.getString(3));
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private void invalidateUser(){
+        synchronized (userLock) {
+            userLoaded = false;
+            user = null;
+        }
+    }
+
+    // Every stored profile, oldest first
+    public ArrayList<UserObject> getUsers(){
+        String[] columns = new String[] {DBHandler.USER_ID, DBHandler.USER_NAME, DBHandler.USER_AGE, DBHandler.USER_GENDER};
+
+        long start = Metrics.begin();
+        ArrayList<UserObject> users = new ArrayList<>();
+        try {
+            Cursor cursor = database().query(DBHandler.TABLE_USER, columns, null, null, null, null, DBHandler.USER_ID);
+            try {
+                while (cursor.moveToNext()) {
+                    users.add(new UserObject(cursor.getInt(0), cursor.getString(1), cursor.getInt(2), cursor.getString(3)));
+                }
+            } finally {
+                cursor.close();
+            }
+            return users;
+        } finally {
+            Metrics.end(Metrics.GET_USERS, start, users.size());
+        }
     }
 
     public Cursor selectUser(){
         String[] columns = new String[] {DBHandler.USER_ID, DBHandler.USER_NAME, DBHandler.USER_AGE, DBHandler.USER_GENDER};
 
-        Cursor cursor = sqLiteDatabase.query(true,DBHandler.TABLE_USER,columns,null,null,null,null,null,null);
+        long start = Metrics.begin();
+        Cursor cursor = database().query(true,DBHandler.TABLE_USER,columns,null,null,null,null,null,null);
         if(cursor !=null){
             cursor.moveToFirst();
         }
+        Metrics.end(Metrics.SELECT_USER, start, cursor == null ? 0 : cursor.getCount());
         return cursor;
     }
 
@@ -55,45 +321,696 @@ public class DBArguments {
         content.put(DBHandler.FOOD_NAME,foodtest.getFood_name());
         content.put(DBHandler.FOOD_CALORIE,foodtest.getCalorie());
         content.put(DBHandler.FOOD_QUANTITY,foodtest.getQuantity());
-        content.put(DBHandler.FOOD_DATE, foodtest.getTime());
+        int day = FoodDate.toEpochDay(foodtest.getTime());
+        if (day != FoodDate.INVALID) {
+            content.put(DBHandler.FOOD_DATE, day);
+        } else {
+            content.putNull(DBHandler.FOOD_DATE);
+        }
+
+        long start = Metrics.begin();
+        long id = -1;
+        int userId = currentUserId();
+        content.put(DBHandler.FOOD_USER, userId);
+        SQLiteDatabase db = database();
+        db.beginTransaction();
+        try {
+            id = db.insert(DBHandler.TABLE_FOOD,null,content);
+            if (id != -1 && day != FoodDate.INVALID) {
+                dbHandler.addToDailyTotal(db, userId, day, (long) foodtest.getCalorie() * foodtest.getQuantity());
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            Metrics.end(Metrics.INSERT_FOOD, start, id == -1 ? 0 : 1);
+        }
+        if (id != -1) {
+            publish(day);
+        }
+        return id;
+    }
+
+    // Logs food without waiting for the disk: it shows up in getallfoods, getFoodsCursor and
+    // callFoo straight away and reaches foodTable shortly after, batched with other entries.
+    // Returns the (negative) id it is listed under until then. The entry is the current profile's.
+    // Listeners hear about the day now, and again once the drain has committed it.
+    public int queueFood(FoodObject food){
+        int id = queue.enqueue(food, currentUserId());
+        // Nothing stored changed, so there is nothing cached to drop
+        notifyChanged(FoodDate.toEpochDay(food.getTime()));
+        return id;
+    }
+
+    // Writes out whatever queueFood is still holding
+    public void flushQueue(){
+        try {
+            queue.flush().get();
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not flush the food queue", e);
+        }
+    }
+
+    // For FoodWriteQueue: the highest journal entry already in foodTable
+    long queuedSeq(){
+        return dbHandler.queuedSeq(database());
+    }
+
+    // For FoodWriteQueue: a drained batch and the journal position it reaches, committed together
+    void applyQueued(List<FoodWriteQueue.Entry> entries, long lastSeq){
+        // Usually all one profile's
+        LinkedHashMap<Integer, ArrayList<FoodObject>> byUser = new LinkedHashMap<>();
+        for (FoodWriteQueue.Entry entry : entries) {
+            ArrayList<FoodObject> foods = byUser.get(entry.userId);
+            if (foods == null) {
+                foods = new ArrayList<>();
+                byUser.put(entry.userId, foods);
+            }
+            foods.add(entry.food);
+        }
+        HashSet<Integer> days = new HashSet<>();
+        SQLiteDatabase db = database();
+        db.beginTransaction();
+        try {
+            for (Map.Entry<Integer, ArrayList<FoodObject>> foods : byUser.entrySet()) {
+                insertFoods(foods.getKey(), foods.getValue(), days);
+            }
+            dbHandler.setQueuedSeq(db, lastSeq);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        // Only now that the rows and the journal position have committed together
+        for (Integer day : days) {
+            publish(day);
+        }
+    }
+
+    // Inserts all rows in one transaction through a single compiled statement, and
+    // updates daily_totals once per day touched rather than once per row
+    public int insertFoods(Collection<FoodObject> foods){
+        HashSet<Integer> days = new HashSet<>();
+        int inserted = insertFoods(currentUserId(), foods, days);
+        // Once per day however many rows it got, so an import is one change per day
+        for (Integer day : days) {
+            publish(day);
+        }
+        return inserted;
+    }
+
+    // Adds the days it wrote to to days and leaves publishing them to the caller, which
+    // may be inside a larger transaction that hasn't committed yet
+    private int insertFoods(int userId, Collection<FoodObject> foods, Set<Integer> days){
+        long start = Metrics.begin();
+        SQLiteDatabase db = database();
+        HashMap<Integer, Long> totals = new HashMap<>();
+        SQLiteStatement insert = db.compileStatement(FoodSql.INSERT_FOOD);
+        int inserted = 0;
+        db.beginTransaction();
+        try {
+            for (FoodObject food : foods) {
+                insert.clearBindings();
+                if (food.getFood_name() != null) insert.bindString(1, food.getFood_name());
+                insert.bindLong(2, food.getCalorie());
+                insert.bindLong(3, food.getQuantity());
+                int day = FoodDate.toEpochDay(food.getTime());
+                if (day != FoodDate.INVALID) insert.bindLong(4, day);
+                insert.bindLong(5, userId);
+                if (insert.executeInsert() == -1) {
+                    continue;
+                }
+                inserted++;
+                if (day != FoodDate.INVALID) {
+                    Long total = totals.get(day);
+                    totals.put(day, (total == null ? 0 : total) + (long) food.getCalorie() * food.getQuantity());
+                }
+            }
+            for (Map.Entry<Integer, Long> total : totals.entrySet()) {
+                dbHandler.addToDailyTotal(db, userId, total.getKey(), total.getValue());
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insert.close();
+            Metrics.end(Metrics.INSERT_FOODS, start, inserted);
+        }
+        days.addAll(totals.keySet());
+        return inserted;
+    }
 
-        return sqLiteDatabase.insert(DBHandler.TABLE_FOOD,null,content);
+    public int insertEats(Collection<EatObject> eats){
+        long start = Metrics.begin();
+        SQLiteDatabase db = database();
+        SQLiteStatement insert = db.compileStatement("INSERT INTO " + DBHandler.TABLE_EAT + "("
+                + DBHandler.EAT_USER + ", " + DBHandler.EAT_FOOD + ") VALUES (?, ?)");
+        int inserted = 0;
+        db.beginTransaction();
+        try {
+            for (EatObject eat : eats) {
+                insert.clearBindings();
+                if (eat.getEat_user_id() != null) insert.bindLong(1, eat.getEat_user_id());
+                if (eat.getEat_food_id() != null) insert.bindLong(2, eat.getEat_food_id());
+                if (insert.executeInsert() != -1) {
+                    inserted++;
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insert.close();
+            Metrics.end(Metrics.INSERT_EATS, start, inserted);
+        }
+        return inserted;
+    }
+
+    public boolean deleteFood(long id){
+        long start = Metrics.begin();
+        boolean deleted = false;
+        int day = FoodDate.INVALID;
+        SQLiteDatabase db = database();
+        String[] args = new String[] {String.valueOf(id)};
+        db.beginTransaction();
+        try {
+            Cursor cursor = db.query(DBHandler.TABLE_FOOD,
+                    new String[] {DBHandler.FOOD_DATE, DBHandler.FOOD_CALORIE, DBHandler.FOOD_QUANTITY, DBHandler.FOOD_USER},
+                    DBHandler.FOOD_ID + " = ?", args, null, null, null);
+            try {
+                if (!cursor.moveToFirst()) {
+                    return false;
+                }
+                if (!cursor.isNull(0)) {
+                    day = cursor.getInt(0);
+                    dbHandler.addToDailyTotal(db, cursor.getInt(3), day, -cursor.getLong(1) * cursor.getLong(2));
+                }
+            } finally {
+                cursor.close();
+            }
+            db.delete(DBHandler.TABLE_FOOD, DBHandler.FOOD_ID + " = ?", args);
+            db.setTransactionSuccessful();
+            deleted = true;
+        } finally {
+            db.endTransaction();
+            Metrics.end(Metrics.DELETE_FOOD, start, deleted ? 1 : 0);
+        }
+        publish(day);
+        return true;
+    }
+
+    public void rebuildDailyTotals(){
+        long start = Metrics.begin();
+        try {
+            dbHandler.rebuildDailyTotals(database());
+            publish(ALL_DAYS);
+        } finally {
+            Metrics.end(Metrics.REBUILD_TOTALS, start, 0);
+        }
+    }
+
+    // Writes the whole log to file as CSV (see LogTransfer), including queued entries.
+    // Goes through a temporary file so a failed export never leaves half a file behind.
+    // Returns the number of rows written.
+    public long exportLog(File file) throws IOException {
+        long start = Metrics.begin();
+        long rows = 0;
+        try {
+            flushQueue();
+            File temp = new File(file.getPath() + ".tmp");
+            FileOutputStream out = new FileOutputStream(temp);
+            try {
+                Writer writer = new BufferedWriter(Channels.newWriter(out.getChannel(), "UTF-8"), 1 << 16);
+                rows = LogTransfer.export(database(), writer);
+                writer.flush();
+                out.getFD().sync();
+            } finally {
+                out.close();
+            }
+            if (!temp.renameTo(file)) {
+                temp.delete();
+                throw new IOException("Could not replace " + file);
+            }
+            return rows;
+        } finally {
+            Metrics.end(Metrics.EXPORT_LOG, start, rows);
+        }
+    }
+
+    // Writes userTable, foodTable and eatTable, queued entries included, to a compact binary
+    // file (see Snapshot). Returns the number of rows written.
+    public long backup(File file) throws IOException {
+        long start = Metrics.begin();
+        long rows = 0;
+        try {
+            flushQueue();
+            File temp = new File(file.getPath() + ".tmp");
+            try {
+                rows = Snapshot.write(database(), temp);
+            } catch (IOException e) {
+                temp.delete();
+                throw e;
+            }
+            if (!temp.renameTo(file)) {
+                temp.delete();
+                throw new IOException("Could not replace " + file);
+            }
+            return rows;
+        } finally {
+            Metrics.end(Metrics.BACKUP, start, rows);
+        }
+    }
+
+    // Replaces everything with the rows in a file written by backup. A damaged file is
+    // rejected before anything is changed. Returns the number of rows read.
+    public long restore(File file) throws IOException {
+        long start = Metrics.begin();
+        long rows = 0;
+        try {
+            // Written rather than dropped, so they survive a restore that fails
+            flushQueue();
+            try {
+                rows = Snapshot.restore(database(), dbHandler, file);
+                queue.clear();
+            } finally {
+                invalidateUser();
+                publish(ALL_DAYS);
+            }
+            return rows;
+        } finally {
+            Metrics.end(Metrics.RESTORE, start, rows);
+        }
+    }
+
+    public File getSafetySnapshot(){
+        return safetySnapshot;
+    }
+
+    // Replaces everything with the rows in a file written by exportLog. What was there is
+    // written to the safety snapshot first, and the import doesn't start if that fails; a
+    // file that fails part way changes nothing. Returns the number of rows read.
+    public long importLog(File file) throws IOException {
+        long start = Metrics.begin();
+        long rows = 0;
+        try {
+            // Also writes out the queue, so its entries are in the snapshot
+            backup(safetySnapshot);
+            Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"), 1 << 16);
+            try {
+                rows = LogTransfer.importLog(database(), dbHandler, reader);
+                queue.clear();
+            } finally {
+                reader.close();
+                invalidateUser();
+                publish(ALL_DAYS);
+            }
+            return rows;
+        } finally {
+            Metrics.end(Metrics.IMPORT_LOG, start, rows);
+        }
+    }
+
+    // The current profile's totals per day, week or month (CalorieTotals.DAY/WEEK/MONTH) for
+    // fromDay..toDay inclusive, in one grouped query over daily_totals. Weeks and months only count days inside the range.
+    public CalorieTotals getTotals(int fromDay, int toDay, int granularity){
+        long start = Metrics.begin();
+        CalorieTotals totals = null;
+        try {
+            TotalsKey key = new TotalsKey(fromDay, toDay, granularity);
+            synchronized (totalsCache) {
+                totals = totalsCache.get(key);
+                if (totals != null) {
+                    return totals;
+                }
+            }
+            int version = totalsVersion;
+            totals = queryTotals(fromDay, toDay, granularity);
+            synchronized (totalsCache) {
+                // Don't cache a result a write has already made stale
+                if (version == totalsVersion) {
+                    totalsCache.put(key, totals);
+                }
+            }
+            return totals;
+        } finally {
+            Metrics.end(Metrics.GET_TOTALS, start, totals == null ? 0 : totals.size());
+        }
+    }
+
+    // The current profile's calories per day for the month holding day, with its target, for
+    // the FoodActivity heatmap. The days come from getTotals, so a month is one grouped query
+    // over daily_totals and stays in totalsCache until a write touches one of its days.
+    // Queued entries are added on top.
+    public MonthTotals getMonthTotals(int day){
+        long start = Metrics.begin();
+        try {
+            int first = MonthTotals.monthStart(day);
+            int last = MonthTotals.monthEnd(day);
+            int[] calories = new int[MonthTotals.MAX_DAYS];
+            UserObject user = getUser();
+            int userId = user == null ? 0 : user.getId();
+            queue.beginRead();
+            try {
+                CalorieTotals totals = getTotals(first, last, CalorieTotals.DAY);
+                for (int i = 0; i < totals.size(); i++) {
+                    calories[totals.getStartDay(i) - first] = (int) totals.getTotal(i);
+                }
+                for (int d = first; d <= last; d++) {
+                    for (FoodWriteQueue.Entry entry : queue.pendingFor(userId, d)) {
+                        calories[d - first] += entry.food.getCalorie() * entry.food.getQuantity();
+                    }
+                }
+            } finally {
+                queue.endRead();
+            }
+            return new MonthTotals(first, last - first + 1, calories, dbHandler.dailyTarget(user));
+        } finally {
+            Metrics.end(Metrics.MONTH_TOTALS, start, 1);
+        }
+    }
+
+    private CalorieTotals queryTotals(int fromDay, int toDay, int granularity){
+        String bucket;
+        if (granularity == CalorieTotals.WEEK) {
+            // Back to Monday; epoch day 0 was a Thursday
+            bucket = DBHandler.TOTAL_DAY + " - ((" + DBHandler.TOTAL_DAY + " + 3) % 7 + 7) % 7";
+        } else if (granularity == CalorieTotals.MONTH) {
+            bucket = DBHandler.TOTAL_DAY + " - CAST(strftime('%d', " + DBHandler.TOTAL_DAY + " * 86400, 'unixepoch') AS INTEGER) + 1";
+        } else {
+            bucket = DBHandler.TOTAL_DAY;
+        }
+        Cursor cursor = database().rawQuery("SELECT " + bucket + " AS bucket, SUM(" + DBHandler.TOTAL_CALORIES + ")"
+                + " FROM " + DBHandler.TABLE_DAILY_TOTALS
+                + " WHERE " + DBHandler.TOTAL_USER + " = ? AND " + DBHandler.TOTAL_DAY + " BETWEEN ? AND ?"
+                + " GROUP BY bucket ORDER BY bucket",
+                new String[] {String.valueOf(currentUserId()), String.valueOf(fromDay), String.valueOf(toDay)});
+        try {
+            int[] startDays = new int[cursor.getCount()];
+            long[] totals = new long[startDays.length];
+            for (int i = 0; cursor.moveToNext(); i++) {
+                startDays[i] = cursor.getInt(0);
+                totals[i] = cursor.getLong(1);
+            }
+            return new CalorieTotals(granularity, startDays, totals);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    // Drops the cached ranges that include day
+    private void invalidateTotals(int day){
+        if (day == FoodDate.INVALID) {
+            return;
+        }
+        synchronized (totalsCache) {
+            totalsVersion++;
+            Iterator<TotalsKey> keys = totalsCache.keySet().iterator();
+            while (keys.hasNext()) {
+                TotalsKey key = keys.next();
+                if (day >= key.fromDay && day <= key.toDay) {
+                    keys.remove();
+                }
+            }
+        }
+    }
+
+    private void invalidateTotals(){
+        synchronized (totalsCache) {
+            totalsVersion++;
+            totalsCache.clear();
+        }
+    }
+
+    private static class TotalsKey {
+        final int fromDay;
+        final int toDay;
+        final int granularity;
+
+        TotalsKey(int fromDay, int toDay, int granularity) {
+            this.fromDay = fromDay;
+            this.toDay = toDay;
+            this.granularity = granularity;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof TotalsKey)) {
+                return false;
+            }
+            TotalsKey other = (TotalsKey) o;
+            return fromDay == other.fromDay && toDay == other.toDay && granularity == other.granularity;
+        }
+
+        @Override
+        public int hashCode() {
+            return (fromDay * 31 + toDay) * 31 + granularity;
+        }
     }
 
     public Cursor selectFood_Test(){
         String[] columns = new String[] {DBHandler.FOOD_ID, DBHandler.FOOD_NAME, DBHandler.FOOD_CALORIE, DBHandler.FOOD_QUANTITY, DBHandler.FOOD_DATE};
 
-        Cursor cursor = sqLiteDatabase.query(true,DBHandler.TABLE_FOOD,columns,null,null,null,null,null,null);
+        long start = Metrics.begin();
+        Cursor cursor = database().query(true,DBHandler.TABLE_FOOD,columns,null,null,null,null,null,null);
         if(cursor !=null){
             cursor.moveToFirst();
         }
+        Metrics.end(Metrics.SELECT_FOODS, start, cursor == null ? 0 : cursor.getCount());
         return cursor;
     }
 
     public ArrayList<FoodObject> getallfoods(String date){
+        long start = Metrics.begin();
         ArrayList<FoodObject> arrayList2 = new ArrayList<>();
-        Cursor foodpicker = selectFood_Test();
-        int i = 0;
-        foodpicker.moveToFirst();
-        while (!foodpicker.isAfterLast()){
-            if(foodpicker.getString(4).contains(date)){
-                arrayList2.add(i, new FoodObject(foodpicker.getString(1),foodpicker.getInt(2), foodpicker.getInt(3), foodpicker.getString(4)));
-                i++;
-                foodpicker.moveToNext();
-            }else {
-                foodpicker.moveToNext();
+        try {
+            int day = FoodDate.toEpochDay(date);
+            if (day == FoodDate.INVALID) {
+                return arrayList2;
+            }
+            int userId = currentUserId();
+            queue.beginRead();
+            try {
+                DayCache.Day stored = storedDay(userId, day);
+                String time = FoodDate.fromEpochDay(day);
+                arrayList2.ensureCapacity(stored.size());
+                for (int i = 0; i < stored.size(); i++) {
+                    arrayList2.add(new FoodObject(stored.ids[i], stored.name(i), stored.calories[i],
+                            stored.quantities[i], time));
+                }
+                for (FoodWriteQueue.Entry entry : queue.pendingFor(userId, day)) {
+                    FoodObject food = entry.food;
+                    arrayList2.add(new FoodObject(entry.displayId, food.getFood_name(), food.getCalorie(),
+                            food.getQuantity(), food.getTime()));
+                }
+                return arrayList2;
+            } finally {
+                queue.endRead();
+            }
+        } finally {
+            Metrics.end(Metrics.GET_ALL_FOODS, start, arrayList2.size());
+        }
+    }
+
+    // The day's rows for FoodOverview.setCursor, which closes it. They are read here, off the
+    // main thread (or come from dayCache), so binding rows later doesn't touch the database.
+    // Queued entries come after the stored ones, through a MergeCursor only when there are any.
+    public Cursor getFoodsCursor(String date){
+        long start = Metrics.begin();
+        int rows = 0;
+        int day = FoodDate.toEpochDay(date);
+        if (day == FoodDate.INVALID) {
+            // Like getallfoods: no day, so nothing stored or queued is on it
+            Metrics.end(Metrics.FOODS_CURSOR, start, 0);
+            return new MatrixCursor(DayCursor.COLUMNS, 0);
+        }
+        int userId = currentUserId();
+        queue.beginRead();
+        try {
+            Cursor cursor = new DayCursor(storedDay(userId, day));
+            rows = cursor.getCount();
+            List<FoodWriteQueue.Entry> queued = queue.pendingFor(userId, day);
+            if (queued.isEmpty()) {
+                return cursor;
+            }
+            MatrixCursor pending = new MatrixCursor(cursor.getColumnNames(), queued.size());
+            for (FoodWriteQueue.Entry entry : queued) {
+                pending.addRow(new Object[] {entry.displayId, entry.food.getFood_name(), entry.food.getCalorie(),
+                        entry.food.getQuantity(), entry.day});
+            }
+            rows += queued.size();
+            return new MergeCursor(new Cursor[] {cursor, pending});
+        } finally {
+            queue.endRead();
+            Metrics.end(Metrics.FOODS_CURSOR, start, rows);
+        }
+    }
+
+    // A profile's stored rows for day, from dayCache when it has them. Call between
+    // queue.beginRead and endRead, so a drain can't move entries out of the queue unseen.
+    private DayCache.Day storedDay(int userId, int day){
+        DayCache.Day cached = dayCache.get(userId, day);
+        if (cached != null) {
+            return cached;
+        }
+        int version = dayCache.version();
+        Cursor cursor = database().rawQuery(FoodSql.SELECT_FOODS_FOR_DAY,
+                new String[] {String.valueOf(userId), String.valueOf(day)});
+        try {
+            int count = cursor.getCount();
+            int[] ids = new int[count];
+            int[] calories = new int[count];
+            int[] quantities = new int[count];
+            String[] names = new String[count];
+            for (int i = 0; cursor.moveToNext(); i++) {
+                ids[i] = cursor.getInt(0);
+                names[i] = cursor.getString(1);
+                calories[i] = cursor.getInt(2);
+                quantities[i] = cursor.getInt(3);
+            }
+            return dayCache.put(userId, day, version, ids, calories, quantities, names);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    // Puts the current profile's days fromDay..toDay into dayCache, all from one range query,
+    // skipping those it has. For DayPrefetcher; keep the range to a month or so, since every
+    // day in it takes a cache slot. Returns the number of days loaded.
+    int prefetchDays(int fromDay, int toDay){
+        long start = Metrics.begin();
+        int loaded = 0;
+        try {
+            int userId = currentUserId();
+            // Held like storedDay does, so a drain can't commit and take its entries out of
+            // the queue between this query and the puts
+            queue.beginRead();
+            try {
+                int version = dayCache.version();
+                Cursor cursor = database().rawQuery(FoodSql.SELECT_FOODS_FOR_DAYS,
+                        new String[] {String.valueOf(userId), String.valueOf(fromDay), String.valueOf(toDay)});
+                try {
+                    int count = cursor.getCount();
+                    int[] ids = new int[count];
+                    int[] calories = new int[count];
+                    int[] quantities = new int[count];
+                    int[] days = new int[count];
+                    String[] names = new String[count];
+                    for (int i = 0; cursor.moveToNext(); i++) {
+                        ids[i] = cursor.getInt(0);
+                        names[i] = cursor.getString(1);
+                        calories[i] = cursor.getInt(2);
+                        quantities[i] = cursor.getInt(3);
+                        days[i] = cursor.getInt(4);
+                    }
+                    // Days without entries are cached too, as empty
+                    int row = 0;
+                    for (int day = fromDay; day <= toDay; day++) {
+                        int end = row;
+                        while (end < count && days[end] == day) {
+                            end++;
+                        }
+                        if (!dayCache.contains(userId, day)) {
+                            dayCache.put(userId, day, version, Arrays.copyOfRange(ids, row, end),
+                                    Arrays.copyOfRange(calories, row, end), Arrays.copyOfRange(quantities, row, end),
+                                    Arrays.copyOfRange(names, row, end));
+                            loaded++;
+                        }
+                        row = end;
+                    }
+                } finally {
+                    cursor.close();
+                }
+            } finally {
+                queue.endRead();
+            }
+            return loaded;
+        } finally {
+            Metrics.end(Metrics.PREFETCH_DAYS, start, loaded);
+        }
+    }
+
+    // Next page of a single day after the entry with id afterId
+    public ArrayList<FoodObject> getFoodPage(int day, int afterId, int limit){
+        long start = Metrics.begin();
+        ArrayList<FoodObject> foods = new ArrayList<>(limit);
+        try {
+            Cursor cursor = database().query(DBHandler.TABLE_FOOD, FOOD_COLUMNS,
+                    DBHandler.FOOD_USER + " = ? AND " + DBHandler.FOOD_DATE + " = ? AND " + DBHandler.FOOD_ID + " > ?",
+                    new String[] {String.valueOf(currentUserId()), String.valueOf(day), String.valueOf(afterId)},
+                    null, null, DBHandler.FOOD_ID, String.valueOf(limit));
+            return readFoods(cursor, foods);
+        } finally {
+            Metrics.end(Metrics.FOOD_PAGE, start, foods.size());
+        }
+    }
+
+    // Next page across all days, ordered by (date, id), after the given key.
+    // The leading "user_id = ? AND date >= ?" keeps it a range scan on foodTable_user_date.
+    public ArrayList<FoodObject> getHistoryPage(int afterDay, int afterId, int limit){
+        long start = Metrics.begin();
+        ArrayList<FoodObject> foods = new ArrayList<>(limit);
+        try {
+            String day = String.valueOf(afterDay);
+            Cursor cursor = database().query(DBHandler.TABLE_FOOD, FOOD_COLUMNS,
+                    DBHandler.FOOD_USER + " = ? AND " + DBHandler.FOOD_DATE + " >= ? AND ("
+                            + DBHandler.FOOD_DATE + " > ? OR " + DBHandler.FOOD_ID + " > ?)",
+                    new String[] {String.valueOf(currentUserId()), day, day, String.valueOf(afterId)},
+                    null, null, DBHandler.FOOD_DATE + ", " + DBHandler.FOOD_ID, String.valueOf(limit));
+            return readFoods(cursor, foods);
+        } finally {
+            Metrics.end(Metrics.HISTORY_PAGE, start, foods.size());
+        }
+    }
+
+    private static ArrayList<FoodObject> readFoods(Cursor cursor, ArrayList<FoodObject> foods){
+        try {
+            while (cursor.moveToNext()) {
+                foods.add(new FoodObject(cursor.getInt(0), cursor.getString(1), cursor.getInt(2), cursor.getInt(3),
+                        FoodDate.fromEpochDay(cursor.getInt(4))));
+            }
+        } finally {
+            cursor.close();
+        }
+        return foods;
+    }
+
+    // Word prefix search over the bundled catalogue: "ap pi" finds "Apple Pie". An empty
+    // query lists the catalogue alphabetically.
+    public List<CatalogueObject> searchCatalogue(String query, int limit){
+        long start = Metrics.begin();
+        List<CatalogueObject> found = null;
+        try {
+            found = catalogue().search(query, limit);
+            return found;
+        } finally {
+            Metrics.end(Metrics.SEARCH_CATALOGUE, start, found == null ? 0 : found.size());
+        }
+    }
+
+    // Maps foods.fcat out of the APK on first use; it has to be stored uncompressed (see aaptOptions)
+    private synchronized FoodCatalogue catalogue(){
+        if (catalogue == null) {
+            try {
+                AssetFileDescriptor asset = context.getAssets().openFd(CATALOGUE_ASSET);
+                FileInputStream stream = asset.createInputStream();
+                try {
+                    catalogue = FoodCatalogue.map(stream.getChannel(), asset.getStartOffset(), asset.getLength());
+                } finally {
+                    // The mapping stays valid after the file is closed
+                    stream.close();
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not open " + CATALOGUE_ASSET, e);
             }
         }
-        return arrayList2;
+        return catalogue;
     }
 
     public Cursor selectEat(){
         String[] columns = new String[] {DBHandler.EAT_ID, DBHandler.EAT_USER, DBHandler.EAT_FOOD};
 
-        Cursor cursor = sqLiteDatabase.query(true,DBHandler.TABLE_EAT,columns,null,null,null,null,null,null);
+        long start = Metrics.begin();
+        Cursor cursor = database().query(true,DBHandler.TABLE_EAT,columns,null,null,null,null,null,null);
         if(cursor !=null){
             cursor.moveToFirst();
         }
+        Metrics.end(Metrics.SELECT_EAT, start, cursor == null ? 0 : cursor.getCount());
         return cursor;
     }
 
@@ -102,16 +1019,40 @@ public class DBArguments {
         content.put(DBHandler.EAT_USER,eattest.getEat_user_id());
         content.put(DBHandler.EAT_FOOD,eattest.getEat_food_id());
 
-        return sqLiteDatabase.insert(DBHandler.TABLE_EAT,null,content);
+        long start = Metrics.begin();
+        long id = -1;
+        try {
+            id = database().insert(DBHandler.TABLE_EAT,null,content);
+            return id;
+        } finally {
+            Metrics.end(Metrics.INSERT_EAT, start, id == -1 ? 0 : 1);
+        }
     }
 
     public int[] callFoo (String string){
-        int[] temp;
-        temp = dbHandler.foo(sqLiteDatabase, string);
-
-
-        return temp;
-
+        long start = Metrics.begin();
+        try {
+            int day = FoodDate.toEpochDay(string);
+            UserObject user = getUser();
+            int userId = user == null ? 0 : user.getId();
+            queue.beginRead();
+            try {
+                int queued = 0;
+                for (FoodWriteQueue.Entry entry : queue.pendingFor(userId, day)) {
+                    queued += entry.food.getCalorie() * entry.food.getQuantity();
+                }
+                // A day already in dayCache (say, prefetched) knows its own total
+                DayCache.Day cached = dayCache.get(userId, day);
+                if (cached != null) {
+                    return dbHandler.summary(user, cached.total + queued);
+                }
+                return dbHandler.foo(database(), string, user, queued);
+            } finally {
+                queue.endRead();
+            }
+        } finally {
+            Metrics.end(Metrics.CALL_FOO, start, 1);
+        }
     }
 
 
@@ -0,0 +1,89 @@
+package com.example.adama.response;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Shared background threads for database work, plus a handler for getting results back to the UI.
+final class DBExecutor {
+
+    private static final int POOL_SIZE = 2;
+    // Queued tasks past this are refused with RejectedExecutionException. A superseded
+    // AsyncDBArguments request is cancelled where it sits rather than taken out, so a full
+    // queue is first purged of those before anything is refused.
+    private static final int QUEUE_CAPACITY = 128;
+    // Prefetches are guesses; past this the oldest is dropped
+    private static final int IDLE_QUEUE_CAPACITY = 4;
+
+    private static final ThreadPoolExecutor executor;
+    // One thread at the lowest priority for work nobody is waiting on, so it never queues
+    // in front of a query a screen needs
+    private static final ThreadPoolExecutor idleExecutor;
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    static {
+        executor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(QUEUE_CAPACITY), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                return new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        runnable.run();
+                    }
+                }, "db-" + count.incrementAndGet());
+            }
+        }, new RejectedExecutionHandler() {
+            @Override
+            public void rejectedExecution(Runnable task, ThreadPoolExecutor pool) {
+                pool.purge();
+                if (!pool.getQueue().offer(task)) {
+                    throw new RejectedExecutionException("Database queue is full");
+                }
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+
+        idleExecutor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(IDLE_QUEUE_CAPACITY), new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                return new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_LOWEST);
+                        runnable.run();
+                    }
+                }, "db-idle");
+            }
+        }, new ThreadPoolExecutor.DiscardOldestPolicy());
+        idleExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    private DBExecutor() {
+    }
+
+    static Future<?> submit(Runnable task) {
+        return executor.submit(task);
+    }
+
+    static Future<?> submitIdle(Runnable task) {
+        return idleExecutor.submit(task);
+    }
+
+    static void post(Runnable task) {
+        mainHandler.post(task);
+    }
+}
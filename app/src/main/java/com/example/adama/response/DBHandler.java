@@ -4,21 +4,32 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class DBHandler extends SQLiteOpenHelper {
 
 
     // Database Version
-    private static final int DATABASE_VERSION = 1;
+    // 2: foodTable.date holds an indexed epoch day instead of a dd/MM/yyyy string
+    // 3: daily_totals rollup of calorie * quantity per day
+    // 4: catalogTable of bundled foods with a full-text index on the name
+    // 5: catalogTable dropped again; the catalogue is the mapped foods.fcat asset
+    // 6: queue_state, how far FoodWriteQueue's journal has been applied
+    // 7: foodTable.user_id and daily_totals per (user_id, day), for more than one profile
+    static final int DATABASE_VERSION = 7;
     // Database Name
-    private static final String DATABASE_NAME = "caloriesInfo";
+    static final String DATABASE_NAME = "caloriesInfo";
     // Contacts table name
     public static final String TABLE_USER = "userTable";
-    public static final String TABLE_FOOD = "foodTable";
+    public static final String TABLE_FOOD = FoodSql.TABLE_FOOD;
     public static final String TABLE_EAT = "eatTable";
+    public static final String TABLE_DAILY_TOTALS = FoodSql.TABLE_DAILY_TOTALS;
+    public static final String TABLE_QUEUE_STATE = "queue_state";
 
     // User Table Columns information
     public static final String USER_ID = "id";
@@ -27,11 +38,13 @@ public class DBHandler extends SQLiteOpenHelper {
     public static final String USER_GENDER = "gender";
 
     //Food Table information
-    public static final String FOOD_ID = "id";
-    public static final String FOOD_NAME = "name";
-    public static final String FOOD_CALORIE = "calorie";
-    public static final String FOOD_QUANTITY = "quantity";
-    public static final String FOOD_DATE = "date";
+    public static final String FOOD_ID = FoodSql.FOOD_ID;
+    public static final String FOOD_NAME = FoodSql.FOOD_NAME;
+    public static final String FOOD_CALORIE = FoodSql.FOOD_CALORIE;
+    public static final String FOOD_QUANTITY = FoodSql.FOOD_QUANTITY;
+    public static final String FOOD_DATE = FoodSql.FOOD_DATE;
+    public static final String FOOD_USER = FoodSql.FOOD_USER;
+    public static final String INDEX_FOOD_USER_DATE = FoodSql.INDEX_FOOD_USER_DATE;
 
 
     // Eat Table information
@@ -39,23 +52,97 @@ public class DBHandler extends SQLiteOpenHelper {
     public static final String EAT_FOOD = "food_id";
     public static final String EAT_USER = "user_id";
 
+    // Daily totals information
+    public static final String TOTAL_USER = FoodSql.TOTAL_USER;
+    public static final String TOTAL_DAY = FoodSql.TOTAL_DAY;
+    public static final String TOTAL_CALORIES = FoodSql.TOTAL_CALORIES;
+
+    // Queue state information; a single row with id 0
+    public static final String QUEUE_ID = "id";
+    public static final String QUEUE_LAST_SEQ = "last_seq";
+
+    private static final String TAG = "DBHandler";
+
+    // In version order, one per version after the first
+    static final Migration[] MIGRATIONS = {
+            new Migration(2) {
+                @Override
+                void migrate(SQLiteDatabase db) {
+                    migrateFoodDates(db);
+                }
+            },
+            new Migration(3) {
+                @Override
+                void migrate(SQLiteDatabase db) {
+                    db.execSQL("CREATE TABLE daily_totals(day INTEGER PRIMARY KEY NOT NULL, "
+                            + "calories INTEGER NOT NULL DEFAULT 0 )");
+                    db.execSQL("INSERT INTO daily_totals(day, calories) SELECT date, SUM(calorie * quantity)"
+                            + " FROM foodTable WHERE date IS NOT NULL GROUP BY date");
+                }
+            },
+            new Migration(4) {
+                @Override
+                void migrate(SQLiteDatabase db) {
+                    // Created catalogTable and catalogSearch from the bundled foods; 5 drops
+                    // them again, so there is no point filling them on the way through
+                }
+            },
+            new Migration(5) {
+                @Override
+                void migrate(SQLiteDatabase db) {
+                    db.execSQL("DROP TABLE IF EXISTS catalogTable");
+                    db.execSQL("DROP TABLE IF EXISTS catalogSearch");
+                }
+            },
+            new Migration(6) {
+                @Override
+                void migrate(SQLiteDatabase db) {
+                    db.execSQL("CREATE TABLE queue_state(id INTEGER PRIMARY KEY NOT NULL, last_seq INTEGER NOT NULL )");
+                    db.execSQL("INSERT INTO queue_state VALUES (0, 0)");
+                }
+            },
+            new Migration(7) {
+                @Override
+                void migrate(SQLiteDatabase db) {
+                    // Until now every entry counted for the newest profile
+                    db.execSQL("ALTER TABLE foodTable ADD COLUMN user_id INTEGER NOT NULL DEFAULT 0");
+                    db.execSQL("UPDATE foodTable SET user_id = (SELECT MAX(id) FROM userTable)"
+                            + " WHERE EXISTS (SELECT 1 FROM userTable)");
+                    db.execSQL("DROP TABLE daily_totals");
+                    db.execSQL("CREATE TABLE daily_totals(user_id INTEGER NOT NULL, day INTEGER NOT NULL, "
+                            + "calories INTEGER NOT NULL DEFAULT 0, PRIMARY KEY (user_id, day))");
+                    db.execSQL("INSERT INTO daily_totals(user_id, day, calories)"
+                            + " SELECT user_id, date, SUM(calorie * quantity) FROM foodTable"
+                            + " WHERE date IS NOT NULL GROUP BY user_id, date");
+                    // foodTable_user_date is left to buildIndexes; foodTable_date serves until then
+                }
+            }
+    };
+
+    // Indexes the queries only run slower without. onCreate makes them with the tables, but
+    // after an upgrade they are built on a DBExecutor thread once the database is open,
+    // so a large foodTable doesn't hold up the first screen. The index named at the same
+    // position in BACKGROUND_INDEX_REPLACES is dropped once its replacement is in place.
+    private static final String[] BACKGROUND_INDEXES = {INDEX_FOOD_USER_DATE};
+    private static final String[] BACKGROUND_INDEX_SQL = {FoodSql.CREATE_FOOD_USER_DATE_INDEX};
+    private static final String[] BACKGROUND_INDEX_REPLACES = {"foodTable_date"};
+
+    private final CalorieTarget calorieTarget = new CalorieTarget();
+    private final AtomicBoolean buildingIndexes = new AtomicBoolean();
 
     public DBHandler(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        this(context, DATABASE_NAME);
+    }
+
+    // A separate file, so tests and benchmarks don't touch the user's data
+    DBHandler(Context context, String name) {
+        super(context, name, MetricsCursor.FACTORY, DATABASE_VERSION);
     }
 
     @Override
     public void onCreate(SQLiteDatabase db) {
 
 
-        String CREATE_FOOD_TABLE = "CREATE TABLE " + TABLE_FOOD + "("
-                + FOOD_ID + " INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
-                + FOOD_NAME + " TEXT,"
-                + FOOD_CALORIE + " INTEGER, "
-                + FOOD_QUANTITY + " INTEGER, "
-                + FOOD_DATE + " TEXT " + ")";
-
-
         String CREATE_USER_TABLE = "CREATE TABLE " + TABLE_USER + "("
                 + USER_ID + " INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
                 + USER_NAME + " TEXT,"
@@ -71,17 +158,121 @@ public class DBHandler extends SQLiteOpenHelper {
 
 
         db.execSQL(CREATE_USER_TABLE);
-        db.execSQL(CREATE_FOOD_TABLE);
+        db.execSQL(FoodSql.createFoodTable(TABLE_FOOD));
         db.execSQL(CREATE_EAT_TABLE);
+        for (String index : BACKGROUND_INDEX_SQL) {
+            db.execSQL(index);
+        }
+        db.execSQL(FoodSql.CREATE_DAILY_TOTALS);
+        db.execSQL("CREATE TABLE " + TABLE_QUEUE_STATE + "("
+                + QUEUE_ID + " INTEGER PRIMARY KEY NOT NULL, "
+                + QUEUE_LAST_SEQ + " INTEGER NOT NULL " + ")");
+        db.execSQL("INSERT INTO " + TABLE_QUEUE_STATE + " VALUES (0, 0)");
+    }
+
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        super.onOpen(db);
+        // Lets the background readers run alongside a write instead of queueing behind it
+        if (!db.isReadOnly()) {
+            db.enableWriteAheadLogging();
+            if (!missingIndexes(db).isEmpty() && buildingIndexes.compareAndSet(false, true)) {
+                DBExecutor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            buildIndexes(getWritableDatabase());
+                        } catch (RuntimeException e) {
+                            // Still missing, so the next open tries again
+                            Log.w(TAG, "Could not build indexes", e);
+                        } finally {
+                            buildingIndexes.set(false);
+                        }
+                    }
+                });
+            }
+        }
     }
 
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        for (Migration migration : MIGRATIONS) {
+            if (migration.version > oldVersion && migration.version <= newVersion) {
+                migration.run(db);
+            }
+        }
+    }
+
+    // Positions in BACKGROUND_INDEXES of the ones not built yet
+    List<Integer> missingIndexes(SQLiteDatabase db) {
+        ArrayList<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < BACKGROUND_INDEXES.length; i++) {
+            Cursor cursor = db.rawQuery("SELECT 1 FROM sqlite_master WHERE type = 'index' AND name = ?",
+                    new String[] {BACKGROUND_INDEXES[i]});
+            try {
+                if (!cursor.moveToFirst()) {
+                    missing.add(i);
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        return missing;
+    }
+
+    void buildIndexes(SQLiteDatabase db) {
+        for (int i : missingIndexes(db)) {
+            long start = Metrics.begin();
+            try {
+                db.execSQL(BACKGROUND_INDEX_SQL[i]);
+                if (BACKGROUND_INDEX_REPLACES[i] != null) {
+                    db.execSQL("DROP INDEX IF EXISTS " + BACKGROUND_INDEX_REPLACES[i]);
+                }
+            } finally {
+                Metrics.end(Metrics.BUILD_INDEX, start, 0);
+            }
+        }
+    }
+
+    // Version 1 kept the date as dd/MM/yyyy text, which could only be matched by scanning
+    // every row. The table is rebuilt with an INTEGER date so the epoch day keeps its
+    // affinity; rows whose date can't be parsed are kept with a NULL date.
+    private static void migrateFoodDates(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE foodTable_v2(id INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, name TEXT,"
+                + "calorie INTEGER, quantity INTEGER, date INTEGER )");
+
+        SQLiteStatement insert = db.compileStatement("INSERT INTO foodTable_v2(id, name, calorie, quantity, date)"
+                + " VALUES (?, ?, ?, ?, ?)");
+        Cursor cursor = db.rawQuery("SELECT id, name, calorie, quantity, date FROM foodTable", null);
+        try {
+            while (cursor.moveToNext()) {
+                insert.clearBindings();
+                insert.bindLong(1, cursor.getLong(0));
+                if (!cursor.isNull(1)) insert.bindString(2, cursor.getString(1));
+                insert.bindLong(3, cursor.getLong(2));
+                insert.bindLong(4, cursor.getLong(3));
+                int day = FoodDate.toEpochDay(cursor.getString(4));
+                if (day != FoodDate.INVALID) insert.bindLong(5, day);
+                insert.executeInsert();
+            }
+        } finally {
+            cursor.close();
+            insert.close();
+        }
+
+        db.execSQL("DROP TABLE foodTable");
+        db.execSQL("ALTER TABLE foodTable_v2 RENAME TO foodTable");
+        db.execSQL("CREATE INDEX foodTable_date ON foodTable(date)");
+    }
+
+    public void resetDatabase(SQLiteDatabase db) {
 
         //Drop old table if it exist
         db.execSQL("DROP TABLE IF EXISTS " + TABLE_USER);
         db.execSQL("DROP TABLE IF EXISTS " + TABLE_FOOD);
         db.execSQL("DROP TABLE IF EXISTS " + TABLE_EAT);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_DAILY_TOTALS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_QUEUE_STATE);
         onCreate(db);
 
     }
@@ -89,106 +280,77 @@ public class DBHandler extends SQLiteOpenHelper {
     public void dropRows(SQLiteDatabase db) {
 
         db.execSQL(" DELETE FROM " + TABLE_FOOD);
+        db.execSQL(" DELETE FROM " + TABLE_DAILY_TOTALS);
     }
 
+    // Recomputes the whole rollup from foodTable, e.g. after a migration
+    public void rebuildDailyTotals(SQLiteDatabase db) {
+        db.execSQL("DELETE FROM " + TABLE_DAILY_TOTALS);
+        db.execSQL(FoodSql.REBUILD_DAILY_TOTALS);
+    }
 
-    public int[]  foo(SQLiteDatabase db, String stringdate){
-        Cursor cursor = db.rawQuery("SELECT calorie  FROM  foodTable ",null);
-        Cursor food_cursor = db.rawQuery("SELECT * FROM foodTable",null);
-
-        Cursor user_age_cusor = db.rawQuery("SELECT age FROM userTable",null);
-        Cursor user_gender_cursor = db.rawQuery("SELECT gender FROM userTable",null);
-
-        String date = "";
-        int [] result= new int[2];
-
-
-
-        List<Integer> a = new ArrayList<Integer>();
-        int sum = 0;
-        if (food_cursor.moveToFirst()){
-            do{
-                if(food_cursor.getString(food_cursor.getColumnIndex(FOOD_DATE)).contains(stringdate)) {
-
-                    String data = food_cursor.getString(food_cursor.getColumnIndex(FOOD_CALORIE));
-                    int pol = Integer.parseInt(data);
-                    a.add(pol);
-                }
-
-                }while(food_cursor.moveToNext());
-                for ( int x:a){
-                    sum = sum + x;
-                }
-            }
-            result[0] = sum;
-        food_cursor.close();
-
-
-
-        food_cursor.close();
-
-        List<Integer> user_age_list = new ArrayList<Integer>();
-        int age = 0;
-
-        if (user_age_cusor.moveToFirst()){
-            do{
-
-                String user_data = user_age_cusor.getString(user_age_cusor.getColumnIndex(USER_AGE));
-                int user_age = Integer.parseInt(user_data);
-                user_age_list.add(user_age);
+    // Keeps the rollup current for a single insert (positive) or delete (negative)
+    public void addToDailyTotal(SQLiteDatabase db, int userId, int day, long calories) {
+        db.execSQL(FoodSql.INSERT_DAY_TOTAL, new Object[] {userId, day});
+        db.execSQL(FoodSql.ADD_DAY_TOTAL, new Object[] {calories, userId, day});
+    }
 
-            }while(cursor.moveToNext());
-            for (int user_age: user_age_list){
+    public long queuedSeq(SQLiteDatabase db) {
+        Cursor cursor = db.rawQuery("SELECT " + QUEUE_LAST_SEQ + " FROM " + TABLE_QUEUE_STATE
+                + " WHERE " + QUEUE_ID + " = 0", null);
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
 
-                age = user_age;
-            }
+    public void setQueuedSeq(SQLiteDatabase db, long seq) {
+        db.execSQL("UPDATE " + TABLE_QUEUE_STATE + " SET " + QUEUE_LAST_SEQ + " = ? WHERE " + QUEUE_ID + " = 0",
+                new Object[] {seq});
+    }
 
+    public int dailyTotal(SQLiteDatabase db, int userId, int day) {
+        Cursor cursor = db.rawQuery(FoodSql.SELECT_DAY_TOTAL, new String[] {String.valueOf(userId), String.valueOf(day)});
+        try {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        } finally {
+            cursor.close();
         }
-        user_age_cusor.close();
-
-        String gender = "";
+    }
 
-        if (user_gender_cursor.moveToFirst()){
-            do{
 
-                String user_gender_data = user_gender_cursor.getString(user_gender_cursor.getColumnIndex(USER_GENDER));
+    // user is the current profile, or null before one has been entered
+    public int[]  foo(SQLiteDatabase db, String stringdate, UserObject user){
+        return foo(db, stringdate, user, 0);
+    }
 
-                gender = user_gender_data;
-            }while(user_gender_cursor.moveToNext());
+    // extraCalories: entries for the day that are still queued in FoodWriteQueue
+    public int[]  foo(SQLiteDatabase db, String stringdate, UserObject user, int extraCalories){
+        long start = Metrics.begin();
+        try {
+            int sum = dailyTotal(db, user == null ? 0 : user.getId(), FoodDate.toEpochDay(stringdate)) + extraCalories;
+            return summary(user, sum);
+        } finally {
+            Metrics.end(Metrics.FOO, start, 1);
+        }
 
+    }
 
+    // What foo returns for a day whose calories are already known: eaten, and what is left of the target
+    int[] summary(UserObject user, int calories){
+        int [] result= new int[2];
+        result[0] = calories;
+        int target = dailyTarget(user);
+        if (target != 0) {
+            result[1] = target - result[0];
         }
-        user_gender_cursor.close();
-
-       if (age < 9 && sum <= 1200 && gender.matches("Female"))
-       {
-           result[1] = 1200 - result[0];
-       }else if(age < 9  && gender.matches("Male")){
-           result[1] = 1400 - result[0];
-       }else if(age > 9 && age < 14 && gender.matches("Female")){
-           result[1] = 1600 - result[0];
-       }else if(age > 9 && age < 14  && gender.matches("Male")){
-           result[1] = 1800 - result[0];
-       }else if(age > 13 && age < 19 && gender.matches("Female")){
-           result[1] = 1800 - result[0];
-       }else if(age > 13 && age < 19  && gender.matches("Male")){
-           result[1] = 2200 - result[0];
-       }else if(age > 18 && age < 31 && gender.matches("Female")){
-           result[1] = 2000 - result[0];
-       }else if(age > 18 && age < 31 && gender.matches("Male")){
-           result[1] = 2400 - result[0];
-       }else if(age > 30 && age < 51 && gender.matches("Female")){
-           result[1] = 1800 - result[0];
-       }else if(age > 30 && age < 50 && gender.matches("Male")){
-           result[1] = 2200 - result[0];
-       }else if(age > 51 && sum <= 1600 && gender.matches("Female")){
-           result[1] = 1600 - result[0];
-       }else if(age > 51 && sum <= 2000 && gender.matches("Male")){
-           result[1] = 2000 - result[0];
-       }
-
         return result;
+    }
 
+    // 0 when there is no profile or nothing to go on
+    int dailyTarget(UserObject user){
+        return user == null ? 0 : calorieTarget.dailyTarget(user.getGender(), user.getAge());
     }
 
 }
@@ -0,0 +1,277 @@
+package com.example.adama.response;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+// The stored rows of the days read most recently, for one profile at a time, so flipping
+// between days in FoodActivity is a memory read. A day is kept as parallel int arrays with
+// its names as ids into a table shared by all cached days, so the heap it takes is a few
+// arrays however many rows it has. Lookups go through an open-addressing table on the epoch
+// day and a least-recently-used order kept in int arrays; nothing is boxed on a hit.
+//
+// Writers call invalidate(day) or clear() once their change has committed. A reader takes
+// version() before it queries and hands it to put(), which drops the result if a write
+// has happened in between. Hits, misses and evictions are counted in Metrics.
+final class DayCache {
+
+    static final int NO_NAME = -1;
+
+    // Past this many distinct names the table starts over, so it can't grow without bound
+    private static final int MAX_NAMES = 4096;
+
+    // One day's stored rows in id order. Never changed once built.
+    static final class Day {
+        final int day;
+        final int[] ids;
+        final int[] calories;
+        final int[] quantities;
+        // Index into names, or NO_NAME for a row without one
+        final int[] nameIds;
+        // The name table as it was when the day was built; later growth copies it
+        private final String[] names;
+        // Calories for the day, as daily_totals has it
+        final int total;
+
+        Day(int day, int[] ids, int[] calories, int[] quantities, int[] nameIds, String[] names) {
+            this.day = day;
+            this.ids = ids;
+            this.calories = calories;
+            this.quantities = quantities;
+            this.nameIds = nameIds;
+            this.names = names;
+            int sum = 0;
+            for (int i = 0; i < ids.length; i++) {
+                sum += calories[i] * quantities[i];
+            }
+            total = sum;
+        }
+
+        int size() {
+            return ids.length;
+        }
+
+        String name(int row) {
+            int id = nameIds[row];
+            return id == NO_NAME ? null : names[id];
+        }
+    }
+
+    private final int capacity;
+
+    // Slot i + 1 at the position an epoch day hashes to (or past it), 0 for an empty position
+    private final int[] table;
+    private final int mask;
+
+    // Per slot: its day, the entry, and its neighbours in recency order (-1 at the ends)
+    private final int[] keys;
+    private final Day[] days;
+    private final int[] newer;
+    private final int[] older;
+    private int newest = -1;
+    private int oldest = -1;
+    private int size;
+    // Slots freed by invalidate, reused before new ones
+    private final int[] free;
+    private int freeCount;
+
+    private String[] names = new String[64];
+    private int nameCount;
+    private final HashMap<String, Integer> nameIds = new HashMap<>();
+
+    // The profile the cached days belong to
+    private int userId;
+    private int version;
+
+    DayCache(int capacity) {
+        this.capacity = capacity;
+        int tableSize = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) << 1;
+        table = new int[tableSize];
+        mask = tableSize - 1;
+        keys = new int[capacity];
+        days = new Day[capacity];
+        newer = new int[capacity];
+        older = new int[capacity];
+        free = new int[capacity];
+    }
+
+    synchronized int version() {
+        return version;
+    }
+
+    // The cached rows of day for userId, or null
+    synchronized Day get(int userId, int day) {
+        int slot = userId == this.userId ? find(day) : -1;
+        if (slot == -1) {
+            Metrics.dayCacheMiss();
+            return null;
+        }
+        Metrics.dayCacheHit();
+        if (slot != newest) {
+            unlink(slot);
+            linkNewest(slot);
+        }
+        return days[slot];
+    }
+
+    // Like get, but doesn't count or change the order; for prefetching
+    synchronized boolean contains(int userId, int day) {
+        return userId == this.userId && find(day) != -1;
+    }
+
+    // Builds the Day for rows read from the database, and caches it unless a write (or a
+    // switch to another profile) came after the reader took version.
+    synchronized Day put(int userId, int day, int version, int[] ids, int[] calories, int[] quantities,
+                         String[] rowNames) {
+        boolean keep = version == this.version && rowNames.length <= MAX_NAMES;
+        if (!keep) {
+            int[] local = new int[rowNames.length];
+            for (int i = 0; i < local.length; i++) {
+                local[i] = rowNames[i] == null ? NO_NAME : i;
+            }
+            return new Day(day, ids, calories, quantities, local, rowNames);
+        }
+        if (userId != this.userId) {
+            clear();
+            this.userId = userId;
+        }
+        if (nameCount + rowNames.length > MAX_NAMES) {
+            clear();
+        }
+        int[] rowIds = new int[rowNames.length];
+        for (int i = 0; i < rowIds.length; i++) {
+            rowIds[i] = intern(rowNames[i]);
+        }
+        Day entry = new Day(day, ids, calories, quantities, rowIds, names);
+
+        int slot = find(day);
+        if (slot != -1) {
+            days[slot] = entry;
+            unlink(slot);
+            linkNewest(slot);
+            return entry;
+        }
+        if (freeCount > 0) {
+            slot = free[--freeCount];
+        } else if (size < capacity) {
+            slot = size;
+        } else {
+            slot = oldest;
+            remove(slot);
+            freeCount--;
+            Metrics.dayCacheEviction();
+        }
+        size++;
+        keys[slot] = day;
+        days[slot] = entry;
+        int position = hash(day);
+        while (table[position] != 0) {
+            position = (position + 1) & mask;
+        }
+        table[position] = slot + 1;
+        linkNewest(slot);
+        return entry;
+    }
+
+    // After a write to day has committed
+    synchronized void invalidate(int day) {
+        version++;
+        int slot = find(day);
+        if (slot != -1) {
+            remove(slot);
+        }
+    }
+
+    // After a write that may have touched any day, or switched profiles
+    synchronized void clear() {
+        version++;
+        Arrays.fill(table, 0);
+        Arrays.fill(days, null);
+        newest = -1;
+        oldest = -1;
+        size = 0;
+        freeCount = 0;
+        names = new String[64];
+        nameCount = 0;
+        nameIds.clear();
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    private int intern(String name) {
+        if (name == null) {
+            return NO_NAME;
+        }
+        Integer id = nameIds.get(name);
+        if (id != null) {
+            return id;
+        }
+        if (nameCount == names.length) {
+            names = Arrays.copyOf(names, names.length * 2);
+        }
+        names[nameCount] = name;
+        nameIds.put(name, nameCount);
+        return nameCount++;
+    }
+
+    private int hash(int day) {
+        return (day * 0x9E3779B9) >>> 16 & mask;
+    }
+
+    private int find(int day) {
+        for (int position = hash(day); table[position] != 0; position = (position + 1) & mask) {
+            int slot = table[position] - 1;
+            if (keys[slot] == day) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    // Takes slot out of the table and the recency order and puts it on the free list
+    private void remove(int slot) {
+        int hole = hash(keys[slot]);
+        while (table[hole] != slot + 1) {
+            hole = (hole + 1) & mask;
+        }
+        // Shift later entries of the same run back so no lookup stops early at the hole
+        for (int position = (hole + 1) & mask; table[position] != 0; position = (position + 1) & mask) {
+            int home = hash(keys[table[position] - 1]);
+            if (((position - home) & mask) >= ((position - hole) & mask)) {
+                table[hole] = table[position];
+                hole = position;
+            }
+        }
+        table[hole] = 0;
+        unlink(slot);
+        days[slot] = null;
+        free[freeCount++] = slot;
+        size--;
+    }
+
+    private void unlink(int slot) {
+        if (newer[slot] != -1) {
+            older[newer[slot]] = older[slot];
+        } else {
+            newest = older[slot];
+        }
+        if (older[slot] != -1) {
+            newer[older[slot]] = newer[slot];
+        } else {
+            oldest = newer[slot];
+        }
+    }
+
+    private void linkNewest(int slot) {
+        newer[slot] = -1;
+        older[slot] = newest;
+        if (newest != -1) {
+            newer[newest] = slot;
+        }
+        newest = slot;
+        if (oldest == -1) {
+            oldest = slot;
+        }
+    }
+}
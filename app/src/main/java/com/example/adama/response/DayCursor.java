@@ -0,0 +1,83 @@
+package com.example.adama.response;
+
+import android.database.AbstractCursor;
+
+// A cached day (see DayCache) read through the same columns as FoodSql.SELECT_FOODS_FOR_DAY,
+// so FoodOverview binds it like a database cursor without anything being copied
+final class DayCursor extends AbstractCursor {
+
+    static final String[] COLUMNS = new String[] {DBHandler.FOOD_ID, DBHandler.FOOD_NAME,
+            DBHandler.FOOD_CALORIE, DBHandler.FOOD_QUANTITY, DBHandler.FOOD_DATE};
+
+    private final DayCache.Day day;
+
+    DayCursor(DayCache.Day day) {
+        this.day = day;
+    }
+
+    @Override
+    public int getCount() {
+        return day.size();
+    }
+
+    @Override
+    public String[] getColumnNames() {
+        return COLUMNS;
+    }
+
+    @Override
+    public String getString(int column) {
+        return column == 1 ? day.name(getPosition()) : String.valueOf(getLong(column));
+    }
+
+    @Override
+    public short getShort(int column) {
+        return (short) getLong(column);
+    }
+
+    @Override
+    public int getInt(int column) {
+        return (int) getLong(column);
+    }
+
+    @Override
+    public long getLong(int column) {
+        int row = getPosition();
+        switch (column) {
+            case 0:
+                return day.ids[row];
+            case 2:
+                return day.calories[row];
+            case 3:
+                return day.quantities[row];
+            case 4:
+                return day.day;
+            default:
+                // The name; food names aren't numbers
+                return 0;
+        }
+    }
+
+    @Override
+    public float getFloat(int column) {
+        return getLong(column);
+    }
+
+    @Override
+    public double getDouble(int column) {
+        return getLong(column);
+    }
+
+    @Override
+    public boolean isNull(int column) {
+        return column == 1 && day.nameIds[getPosition()] == DayCache.NO_NAME;
+    }
+
+    @Override
+    public int getType(int column) {
+        if (column == 1) {
+            return isNull(column) ? FIELD_TYPE_NULL : FIELD_TYPE_STRING;
+        }
+        return FIELD_TYPE_INTEGER;
+    }
+}
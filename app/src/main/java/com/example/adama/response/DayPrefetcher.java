@@ -0,0 +1,54 @@
+package com.example.adama.response;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Warms DayCache around the day a screen shows, so moving to a neighbouring day, or any
+// other day of the month on screen, renders from memory: first RADIUS days either side,
+// then the rest of the month, each in one range query on DBExecutor's idle thread. That
+// also warms callFoo, which takes a cached day's total. prefetch() for another day cancels
+// whatever the last one hasn't started yet. Use from the main thread and call cancel()
+// from onDestroy.
+public class DayPrefetcher {
+
+    static final int RADIUS = 3;
+
+    private final DBArguments data;
+    // Bumped by cancel(); a task that sees it move stops before its next query
+    private final AtomicInteger generation = new AtomicInteger();
+    private Future<?> pending;
+
+    public DayPrefetcher(DBArguments data) {
+        this.data = data;
+    }
+
+    public void prefetch(final int day) {
+        cancel();
+        if (day == FoodDate.INVALID) {
+            return;
+        }
+        final int expected = generation.get();
+        pending = DBExecutor.submitIdle(new Runnable() {
+            @Override
+            public void run() {
+                if (generation.get() != expected) {
+                    return;
+                }
+                data.prefetchDays(day - RADIUS, day + RADIUS);
+                if (generation.get() != expected) {
+                    return;
+                }
+                data.prefetchDays(MonthTotals.monthStart(day), MonthTotals.monthEnd(day));
+            }
+        });
+    }
+
+    public void cancel() {
+        generation.incrementAndGet();
+        if (pending != null) {
+            // A query already running is short; it is left to finish
+            pending.cancel(false);
+            pending = null;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.example.adama.response;
 
 
 import android.content.Intent;
+import android.database.Cursor;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.design.widget.FloatingActionButton;
@@ -13,7 +14,6 @@ import android.widget.Button;
 import android.widget.CalendarView;
 
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Calendar;
 
 public class FoodActivity extends AppCompatActivity implements FoodOverview.itemClickCallback{
@@ -21,25 +21,62 @@ public class FoodActivity extends AppCompatActivity implements FoodOverview.item
 
     FloatingActionButton plusbutton;
     RecyclerView recyclerView;
-    public static FoodOverview foodOverview;
+    // Per instance: a FoodActivity started on top of another has its own list and cursor
+    FoodOverview foodOverview;
     Button proceed;
+    Button history;
     CalendarView calendar;
     DBArguments dbArguments;
     String currentDate;
-    ArrayList<FoodObject> foods;
-    DBArguments data;
+    AsyncDBArguments data;
+    ObservableQuery<Cursor> dayFoods;
+    DayPrefetcher prefetcher;
+    MonthHeatmap heatmap;
+    ObservableQuery<MonthTotals> monthTotals;
+    // First day of the month the heatmap is showing
+    int heatmapMonth = FoodDate.INVALID;
 
 
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        long start = Metrics.begin();
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_food);
-        data = new DBArguments(this);
+        data = new AsyncDBArguments(this);
+        prefetcher = new DayPrefetcher(DBArguments.getInstance(this));
+        dayFoods = data.observable(AsyncDBArguments.TAG_FOODS, new AsyncDBArguments.Callback<Cursor>() {
+            @Override
+            public void onResult(Cursor result) {
+                foodOverview.setCursor(result);
+            }
+        });
+        monthTotals = data.observable(AsyncDBArguments.TAG_MONTH, new AsyncDBArguments.Callback<MonthTotals>() {
+            @Override
+            public void onResult(MonthTotals result) {
+                heatmap.setMonth(result);
+            }
+        });
+        heatmap = (MonthHeatmap) findViewById(R.id.heatmap);
+        heatmap.setOnDayClickListener(new MonthHeatmap.OnDayClickListener() {
+            @Override
+            public void onDayClick(int day) {
+                String date = FoodDate.fromEpochDay(day);
+                calendar.setDate(startOfDay(date), false, true);
+                currentDate = date;
+                setview(currentDate);
+            }
+        });
         Calendar dateCalendar = Calendar.getInstance();
         SimpleDateFormat formatdate = new SimpleDateFormat("dd/MM/yyyy");
         currentDate = formatdate.format(dateCalendar.getTime());
 
+        foodOverview = new FoodOverview(this);
+        foodOverview.setitemClickCallback(this);
+        recyclerView = (RecyclerView) findViewById(R.id.recycleview);
+        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        recyclerView.setAdapter(foodOverview);
+
         setview(currentDate);
 
         plusbutton = (FloatingActionButton) findViewById(R.id.plusbutton);
@@ -48,6 +85,7 @@ public class FoodActivity extends AppCompatActivity implements FoodOverview.item
             public void onClick(View view) {
                 Intent jud = new Intent(getApplicationContext(), PlusButtonActivity.class);
                 jud.putExtra("dato", currentDate);
+                // The food logged there shows up through dayFoods, which queueFood tells
                 startActivity(jud);
             }
         });
@@ -63,23 +101,29 @@ public class FoodActivity extends AppCompatActivity implements FoodOverview.item
             }
         });
 
+        // Every entry ever logged, paged in as the list scrolls; picking a day goes back to that day
+        history = (Button) findViewById(R.id.history);
+        history.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                showHistory();
+            }
+        });
+
         calendar = (CalendarView) findViewById(R.id.calendar);
 
         calendar.setOnDateChangeListener(new CalendarView.OnDateChangeListener() {
             @Override
             public void onSelectedDayChange(@NonNull CalendarView calendarView, int year, int month, int day) {
                 month = month +1;
-                String dd = "";
-                String MM = "";
-                if(day <9)dd = "0"+day;
-                if(month<9)MM = "0"+month;
-                currentDate = ""+dd+"/"+MM+"/"+year;
+                currentDate = FoodDate.format(year, month, day);
                 System.out.println(currentDate);
                 setview(currentDate);
             }
         });
 
 
+        Metrics.end(Metrics.SCREEN_FOOD, start, 0);
     }
 
     @Override
@@ -87,14 +131,55 @@ public class FoodActivity extends AppCompatActivity implements FoodOverview.item
 
     }
 
-    void setview(String currentDate){
-        foodOverview = new FoodOverview(data.getallfoods(currentDate), this);
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        dayFoods.stop();
+        monthTotals.stop();
+        prefetcher.cancel();
+        data.cancelAll();
+        foodOverview.setCursor(null);
+    }
 
-        foodOverview.setitemClickCallback(this);
-        recyclerView = (RecyclerView) findViewById(R.id.recycleview);
-        recyclerView.setLayoutManager(new LinearLayoutManager(this));
-        recyclerView.setAdapter(foodOverview);
-        foodOverview.notifyDataSetChanged();
+    // Local midnight of a dd/MM/yyyy date, for CalendarView.setDate
+    static long startOfDay(String date){
+        String[] parts = date.split("/");
+        Calendar day = Calendar.getInstance();
+        day.clear();
+        day.set(Integer.parseInt(parts[2]), Integer.parseInt(parts[1]) - 1, Integer.parseInt(parts[0]));
+        return day.getTimeInMillis();
+    }
+
+    void showHistory(){
+        dayFoods.stop();
+        foodOverview.setPagedList(FoodPagedList.forHistory(data));
+    }
+
+    // A newer date replaces a pending lookup, so a slow query never overwrites a later selection.
+    // The list reloads by itself when the day's entries change. The days around it are
+    // fetched ahead, since the next tap is usually a neighbouring day.
+    void setview(final String currentDate){
+        int day = FoodDate.toEpochDay(currentDate);
+        dayFoods.observe(day, day, new AsyncDBArguments.Query<Cursor>() {
+            @Override
+            public Cursor run(DBArguments data) {
+                return data.getFoodsCursor(currentDate);
+            }
+        });
+        prefetcher.prefetch(day);
+        heatmap.setSelectedDay(day);
+        // The month only needs loading again when the selection leaves it; after that it
+        // reloads by itself when one of its days changes
+        if (day != FoodDate.INVALID && MonthTotals.monthStart(day) != heatmapMonth) {
+            heatmapMonth = MonthTotals.monthStart(day);
+            final int first = heatmapMonth;
+            monthTotals.observe(first, MonthTotals.monthEnd(first), new AsyncDBArguments.Query<MonthTotals>() {
+                @Override
+                public MonthTotals run(DBArguments data) {
+                    return data.getMonthTotals(first);
+                }
+            });
+        }
 
     }
 }
\ No newline at end of file
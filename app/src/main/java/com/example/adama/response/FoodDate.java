@@ -0,0 +1,73 @@
+package com.example.adama.response;
+
+import java.util.Calendar;
+
+// Converts between the dd/MM/yyyy strings the screens pass around and the
+// epoch day (days since 01/01/1970) stored in foodTable.date.
+public final class FoodDate {
+
+    public static final int INVALID = Integer.MIN_VALUE;
+
+    private FoodDate() {
+    }
+
+    public static int today() {
+        Calendar calendar = Calendar.getInstance();
+        return toEpochDay(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH));
+    }
+
+    // Returns INVALID for anything that is not a complete dd/MM/yyyy date
+    public static int toEpochDay(String date) {
+        if (date == null) {
+            return INVALID;
+        }
+        String[] parts = date.trim().split("/");
+        if (parts.length != 3) {
+            return INVALID;
+        }
+        try {
+            int day = Integer.parseInt(parts[0]);
+            int month = Integer.parseInt(parts[1]);
+            int year = Integer.parseInt(parts[2]);
+            if (month < 1 || month > 12 || day < 1 || day > 31) {
+                return INVALID;
+            }
+            return toEpochDay(year, month, day);
+        } catch (NumberFormatException e) {
+            return INVALID;
+        }
+    }
+
+    // month is 1-12
+    public static int toEpochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    public static String fromEpochDay(int epochDay) {
+        int z = epochDay + 719468;
+        int era = (z >= 0 ? z : z - 146096) / 146097;
+        int dayOfEra = z - era * 146097;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int mp = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return format(year, month, day);
+    }
+
+    // month is 1-12
+    public static String format(int year, int month, int day) {
+        StringBuilder builder = new StringBuilder(10);
+        if (day < 10) builder.append('0');
+        builder.append(day).append('/');
+        if (month < 10) builder.append('0');
+        builder.append(month).append('/').append(year);
+        return builder.toString();
+    }
+}
@@ -16,6 +16,11 @@ public class FoodObject {
     private String time;
 
     public FoodObject(String food_name, int calorie, int quantity, String time) {
+        this(0, food_name, calorie, quantity, time);
+    }
+
+    public FoodObject(int food_id, String food_name, int calorie, int quantity, String time) {
+        this.food_id = food_id;
         this.food_name = food_name;
         this.calorie = calorie;
         this.quantity = quantity;
@@ -1,6 +1,9 @@
 package com.example.adama.response;
 
 import android.content.Context;
+import android.database.CharArrayBuffer;
+import android.database.Cursor;
+import android.support.v7.util.DiffUtil;
 import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -8,16 +11,133 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import java.util.ArrayList;
+import java.util.List;
 
 public class FoodOverview extends RecyclerView.Adapter<FoodOverview.adapterclass> {
 
     private itemClickCallback callback;
-    private ArrayList<FoodObject> arrayList;
+    private List<FoodObject> arrayList;
     private LayoutInflater layoutInflater;
+    // Bumped for every setFoods call so an older diff finishing late is thrown away
+    private int generation;
+    // Set instead of arrayList when showing a FoodPagedList
+    private FoodPagedList pagedList;
+    // Set instead of arrayList when binding straight from the database; owned and closed here
+    private Cursor cursor;
+    private int idColumn;
+    private int nameColumn;
+    private int calorieColumn;
+    private int quantityColumn;
+
+    public FoodOverview(Context context){
+        this(new ArrayList<FoodObject>(), context);
+    }
 
     public FoodOverview(ArrayList<FoodObject> foodObjectArrayList, Context context){
         this.layoutInflater= LayoutInflater.from(context);
         this.arrayList= foodObjectArrayList;
+        setHasStableIds(true);
+    }
+
+    // Swaps in a new list, diffing it against the current one on DBExecutor so
+    // only the rows that actually changed get rebound. Call on the main thread.
+    public void setFoods(final List<FoodObject> foods){
+        if (pagedList != null || cursor != null) {
+            if (pagedList != null) {
+                pagedList.setListener(null);
+                pagedList = null;
+            }
+            closeCursor();
+            arrayList = new ArrayList<>();
+            notifyDataSetChanged();
+        }
+        final List<FoodObject> oldList = arrayList;
+        final int expected = ++generation;
+        DBExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                final DiffUtil.DiffResult result = DiffUtil.calculateDiff(new FoodDiff(oldList, foods));
+                DBExecutor.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (expected != generation) {
+                            return;
+                        }
+                        arrayList = foods;
+                        result.dispatchUpdatesTo(FoodOverview.this);
+                    }
+                });
+            }
+        });
+    }
+
+    // Rows are fetched page by page as they get bound
+    public void setPagedList(FoodPagedList foods){
+        ++generation;
+        if (pagedList != null) {
+            pagedList.setListener(null);
+        }
+        closeCursor();
+        pagedList = foods;
+        notifyDataSetChanged();
+        foods.setListener(new FoodPagedList.Listener() {
+            @Override
+            public void onRowsInserted(int start, int count) {
+                notifyItemRangeInserted(start, count);
+            }
+
+            @Override
+            public void onRowsLoaded(int start, int count) {
+                notifyItemRangeChanged(start, count);
+            }
+        });
+    }
+
+    // Binds rows from cursor (id, name, calorie, quantity columns) without building a
+    // FoodObject per row. Takes ownership: the previous cursor is closed, and passing null
+    // closes the current one. Call on the main thread.
+    public void setCursor(Cursor foods){
+        ++generation;
+        if (pagedList != null) {
+            pagedList.setListener(null);
+            pagedList = null;
+        }
+        Cursor old = cursor;
+        cursor = foods;
+        if (foods != null) {
+            idColumn = foods.getColumnIndexOrThrow(DBHandler.FOOD_ID);
+            nameColumn = foods.getColumnIndexOrThrow(DBHandler.FOOD_NAME);
+            calorieColumn = foods.getColumnIndexOrThrow(DBHandler.FOOD_CALORIE);
+            quantityColumn = foods.getColumnIndexOrThrow(DBHandler.FOOD_QUANTITY);
+        }
+        arrayList = new ArrayList<>();
+        notifyDataSetChanged();
+        if (old != null) {
+            old.close();
+        }
+    }
+
+    Cursor getCursor(){
+        return cursor;
+    }
+
+    private void closeCursor(){
+        if (cursor != null) {
+            cursor.close();
+            cursor = null;
+        }
+    }
+
+    @Override
+    public long getItemId(int position) {
+        if (pagedList != null) {
+            return pagedList.getId(position);
+        }
+        if (cursor != null) {
+            cursor.moveToPosition(position);
+            return cursor.getLong(idColumn);
+        }
+        return arrayList.get(position).getFood_id();
     }
 
     @Override
@@ -28,16 +148,68 @@ public class FoodOverview extends RecyclerView.Adapter<FoodOverview.adapterclass
 
     @Override
     public void onBindViewHolder(adapterclass holder, int position) {
-        FoodObject foodObject = arrayList.get(position);
+        if (cursor != null) {
+            cursor.moveToPosition(position);
+            // Each holder has its own buffer, since the TextView keeps pointing at the chars
+            cursor.copyStringToBuffer(nameColumn, holder.name);
+            holder.leftview.setText(holder.name.data, 0, holder.name.sizeCopied);
+            holder.rightview.setText(NumberStrings.valueOf(cursor.getInt(quantityColumn)));
+            holder.middleview.setText(NumberStrings.valueOf(cursor.getInt(calorieColumn)));
+            return;
+        }
+        FoodObject foodObject = pagedList != null ? pagedList.get(position) : arrayList.get(position);
+        if (foodObject == null) {
+            holder.leftview.setText("");
+            holder.rightview.setText("");
+            holder.middleview.setText("");
+            return;
+        }
         holder.leftview.setText(foodObject.getFood_name());
-        holder.rightview.setText(String.valueOf(foodObject.getQuantity()));
-        holder.middleview.setText(String.valueOf(foodObject.getCalorie()));
+        holder.rightview.setText(NumberStrings.valueOf(foodObject.getQuantity()));
+        holder.middleview.setText(NumberStrings.valueOf(foodObject.getCalorie()));
 
     }
 //push
     @Override
     public int getItemCount() {
-        return arrayList.size();
+        if (pagedList != null) {
+            return pagedList.size();
+        }
+        return cursor != null ? cursor.getCount() : arrayList.size();
+    }
+
+    private static class FoodDiff extends DiffUtil.Callback {
+        private final List<FoodObject> oldList;
+        private final List<FoodObject> newList;
+
+        FoodDiff(List<FoodObject> oldList, List<FoodObject> newList) {
+            this.oldList = oldList;
+            this.newList = newList;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldList.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newList.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return oldList.get(oldItemPosition).getFood_id() == newList.get(newItemPosition).getFood_id();
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            FoodObject before = oldList.get(oldItemPosition);
+            FoodObject after = newList.get(newItemPosition);
+            return before.getCalorie() == after.getCalorie()
+                    && before.getQuantity() == after.getQuantity()
+                    && (before.getFood_name() == null ? after.getFood_name() == null : before.getFood_name().equals(after.getFood_name()));
+        }
     }
 
     public interface itemClickCallback{
@@ -52,6 +224,7 @@ class adapterclass extends RecyclerView.ViewHolder implements View.OnClickListen
     private TextView rightview;
     private TextView middleview;
     private View container;
+    private final CharArrayBuffer name = new CharArrayBuffer(32);
 
 
 
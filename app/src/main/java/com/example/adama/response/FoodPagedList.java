@@ -0,0 +1,188 @@
+package com.example.adama.response;
+
+import java.util.ArrayList;
+
+// Windowed view over foodTable for long lists. Rows are fetched PAGE_SIZE at a time with
+// keyset queries on (date, id), so a page costs the same no matter how far down the log it
+// is, and pages further than KEEP_PAGES from the one being read are dropped again. Only
+// each page's food ids and its starting key are kept once it is dropped.
+// Everything except the queries runs on the main thread.
+public class FoodPagedList {
+
+    public interface Listener {
+        void onRowsInserted(int start, int count);
+
+        void onRowsLoaded(int start, int count);
+    }
+
+    static final int PAGE_SIZE = 50;
+    static final int KEEP_PAGES = 2;
+    private static final String TAG_PAGE = "foodpage:";
+
+    private final AsyncDBArguments data;
+    // Every day, in (date, id) order, rather than the one day below
+    private final boolean history;
+    private final int day;
+    private Listener listener;
+
+    private final ArrayList<FoodObject[]> pages = new ArrayList<>();
+    private final ArrayList<int[]> pageIds = new ArrayList<>();
+    // (date, id) of the last row of each page, where the next page's query continues
+    private final ArrayList<int[]> pageEnd = new ArrayList<>();
+    private final ArrayList<Boolean> loading = new ArrayList<>();
+    private int size;
+    private boolean endReached;
+    private boolean appending;
+    private int windowPage;
+
+    // All entries of a single day
+    public static FoodPagedList forDay(AsyncDBArguments data, String date) {
+        return new FoodPagedList(data, false, FoodDate.toEpochDay(date));
+    }
+
+    // Every entry ever logged, oldest day first
+    public static FoodPagedList forHistory(AsyncDBArguments data) {
+        return new FoodPagedList(data, true, FoodDate.INVALID);
+    }
+
+    private FoodPagedList(AsyncDBArguments data, boolean history, int day) {
+        this.data = data;
+        this.history = history;
+        this.day = day;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+        if (pages.isEmpty() && !appending) {
+            loadNext();
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getId(int position) {
+        return pageIds.get(position / PAGE_SIZE)[position % PAGE_SIZE];
+    }
+
+    // Returns null while the row's page is being (re)loaded
+    public FoodObject get(int position) {
+        int page = position / PAGE_SIZE;
+        if (!endReached && position >= size - PAGE_SIZE / 2) {
+            loadNext();
+        }
+        dropFarPages(page);
+        FoodObject[] rows = pages.get(page);
+        if (rows == null) {
+            reload(page);
+            return null;
+        }
+        return rows[position % PAGE_SIZE];
+    }
+
+    // Only the pages that just left the window need checking, so this stays O(KEEP_PAGES)
+    // however long the list gets
+    private void dropFarPages(int page) {
+        if (page == windowPage) {
+            return;
+        }
+        int from = Math.max(0, windowPage - KEEP_PAGES);
+        int to = Math.min(pages.size() - 1, windowPage + KEEP_PAGES);
+        for (int i = from; i <= to; i++) {
+            if (Math.abs(i - page) > KEEP_PAGES) {
+                pages.set(i, null);
+            }
+        }
+        windowPage = page;
+    }
+
+    private void loadNext() {
+        if (appending || endReached) {
+            return;
+        }
+        appending = true;
+        final int page = pages.size();
+        final int[] after = after(page);
+        data.submit(TAG_PAGE + page, query(after), new AsyncDBArguments.Callback<ArrayList<FoodObject>>() {
+            @Override
+            public void onResult(ArrayList<FoodObject> rows) {
+                appending = false;
+                if (rows == null) {
+                    // The query failed; the next get() near the end tries again
+                    return;
+                }
+                if (rows.size() < PAGE_SIZE) {
+                    endReached = true;
+                }
+                if (rows.isEmpty()) {
+                    return;
+                }
+                pages.add(rows.toArray(new FoodObject[rows.size()]));
+                pageIds.add(ids(rows));
+                FoodObject last = rows.get(rows.size() - 1);
+                pageEnd.add(new int[] {FoodDate.toEpochDay(last.getTime()), last.getFood_id()});
+                loading.add(false);
+                int start = size;
+                size += rows.size();
+                if (listener != null) {
+                    listener.onRowsInserted(start, rows.size());
+                }
+            }
+        });
+    }
+
+    private void reload(final int page) {
+        if (loading.get(page)) {
+            return;
+        }
+        loading.set(page, true);
+        data.submit(TAG_PAGE + page, query(after(page)), new AsyncDBArguments.Callback<ArrayList<FoodObject>>() {
+            @Override
+            public void onResult(ArrayList<FoodObject> rows) {
+                loading.set(page, false);
+                if (rows == null) {
+                    return;
+                }
+                // Rows deleted meanwhile would shift every later page; keep the ids we
+                // already published and only fill in what still lines up
+                FoodObject[] current = new FoodObject[pageIds.get(page).length];
+                for (int i = 0; i < current.length && i < rows.size(); i++) {
+                    current[i] = rows.get(i);
+                }
+                pages.set(page, current);
+                if (listener != null) {
+                    listener.onRowsLoaded(page * PAGE_SIZE, current.length);
+                }
+            }
+        });
+    }
+
+    private AsyncDBArguments.Query<ArrayList<FoodObject>> query(final int[] after) {
+        return new AsyncDBArguments.Query<ArrayList<FoodObject>>() {
+            @Override
+            public ArrayList<FoodObject> run(DBArguments data) {
+                if (!history) {
+                    return data.getFoodPage(day, after == null ? 0 : after[1], PAGE_SIZE);
+                }
+                if (after == null) {
+                    return data.getHistoryPage(Integer.MIN_VALUE, 0, PAGE_SIZE);
+                }
+                return data.getHistoryPage(after[0], after[1], PAGE_SIZE);
+            }
+        };
+    }
+
+    // Page 0 starts before everything
+    private int[] after(int page) {
+        return page == 0 ? null : pageEnd.get(page - 1);
+    }
+
+    private static int[] ids(ArrayList<FoodObject> rows) {
+        int[] ids = new int[rows.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = rows.get(i).getFood_id();
+        }
+        return ids;
+    }
+}
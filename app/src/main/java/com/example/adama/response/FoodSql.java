@@ -0,0 +1,77 @@
+package com.example.adama.response;
+
+// SQL for the food log's hot paths: the day list, the day total and inserts. Kept free of
+// Android classes so the JVM benchmarks in :benchmark run exactly the statements the app does.
+public final class FoodSql {
+
+    public static final String TABLE_FOOD = "foodTable";
+    public static final String TABLE_DAILY_TOTALS = "daily_totals";
+
+    public static final String FOOD_ID = "id";
+    public static final String FOOD_NAME = "name";
+    public static final String FOOD_CALORIE = "calorie";
+    public static final String FOOD_QUANTITY = "quantity";
+    public static final String FOOD_DATE = "date";
+    // The profile the entry belongs to; 0 for entries made before there was one
+    public static final String FOOD_USER = "user_id";
+    public static final String INDEX_FOOD_USER_DATE = "foodTable_user_date";
+
+    public static final String TOTAL_USER = "user_id";
+    public static final String TOTAL_DAY = "day";
+    public static final String TOTAL_CALORIES = "calories";
+
+    // Holds every column SELECT_FOODS_FOR_DAY reads, in its ORDER BY order, so a day list is
+    // a range read of the index that never touches foodTable however many profiles share it
+    public static final String CREATE_FOOD_USER_DATE_INDEX = "CREATE INDEX IF NOT EXISTS " + INDEX_FOOD_USER_DATE
+            + " ON " + TABLE_FOOD + "(" + FOOD_USER + ", " + FOOD_DATE + ", " + FOOD_ID + ", "
+            + FOOD_CALORIE + ", " + FOOD_QUANTITY + ", " + FOOD_NAME + ")";
+
+    public static final String CREATE_DAILY_TOTALS = "CREATE TABLE " + TABLE_DAILY_TOTALS + "("
+            + TOTAL_USER + " INTEGER NOT NULL, "
+            + TOTAL_DAY + " INTEGER NOT NULL, "
+            + TOTAL_CALORIES + " INTEGER NOT NULL DEFAULT 0, "
+            + "PRIMARY KEY (" + TOTAL_USER + ", " + TOTAL_DAY + "))";
+
+    // Columns: id, name, calorie, quantity, date. Bind: user id, epoch day
+    public static final String SELECT_FOODS_FOR_DAY = "SELECT " + FOOD_ID + ", " + FOOD_NAME + ", "
+            + FOOD_CALORIE + ", " + FOOD_QUANTITY + ", " + FOOD_DATE + " FROM " + TABLE_FOOD
+            + " WHERE " + FOOD_USER + " = ? AND " + FOOD_DATE + " = ? ORDER BY " + FOOD_ID;
+
+    // Bind: user id, first epoch day, last epoch day
+    public static final String SELECT_FOODS_FOR_DAYS = "SELECT " + FOOD_ID + ", " + FOOD_NAME + ", "
+            + FOOD_CALORIE + ", " + FOOD_QUANTITY + ", " + FOOD_DATE + " FROM " + TABLE_FOOD
+            + " WHERE " + FOOD_USER + " = ? AND " + FOOD_DATE + " BETWEEN ? AND ? ORDER BY " + FOOD_DATE + ", " + FOOD_ID;
+
+    // Bind: user id, epoch day
+    public static final String SELECT_DAY_TOTAL = "SELECT " + TOTAL_CALORIES + " FROM " + TABLE_DAILY_TOTALS
+            + " WHERE " + TOTAL_USER + " = ? AND " + TOTAL_DAY + " = ?";
+
+    // Bind: name, calorie, quantity, epoch day, user id
+    public static final String INSERT_FOOD = "INSERT INTO " + TABLE_FOOD + "(" + FOOD_NAME + ", "
+            + FOOD_CALORIE + ", " + FOOD_QUANTITY + ", " + FOOD_DATE + ", " + FOOD_USER + ") VALUES (?, ?, ?, ?, ?)";
+
+    // INSERT_DAY_TOTAL then ADD_DAY_TOTAL keep the rollup current for one day.
+    // Bind: user id, epoch day / calories, user id, epoch day
+    public static final String INSERT_DAY_TOTAL = "INSERT OR IGNORE INTO " + TABLE_DAILY_TOTALS
+            + "(" + TOTAL_USER + ", " + TOTAL_DAY + ") VALUES (?, ?)";
+    public static final String ADD_DAY_TOTAL = "UPDATE " + TABLE_DAILY_TOTALS + " SET "
+            + TOTAL_CALORIES + " = " + TOTAL_CALORIES + " + ? WHERE " + TOTAL_USER + " = ? AND " + TOTAL_DAY + " = ?";
+
+    public static final String REBUILD_DAILY_TOTALS = "INSERT INTO " + TABLE_DAILY_TOTALS
+            + "(" + TOTAL_USER + ", " + TOTAL_DAY + ", " + TOTAL_CALORIES + ")"
+            + " SELECT " + FOOD_USER + ", " + FOOD_DATE + ", SUM(" + FOOD_CALORIE + " * " + FOOD_QUANTITY + ")"
+            + " FROM " + TABLE_FOOD + " WHERE " + FOOD_DATE + " IS NOT NULL GROUP BY " + FOOD_USER + ", " + FOOD_DATE;
+
+    private FoodSql() {
+    }
+
+    public static String createFoodTable(String name) {
+        return "CREATE TABLE " + name + "("
+                + FOOD_ID + " INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                + FOOD_NAME + " TEXT,"
+                + FOOD_CALORIE + " INTEGER, "
+                + FOOD_QUANTITY + " INTEGER, "
+                + FOOD_DATE + " INTEGER, "
+                + FOOD_USER + " INTEGER NOT NULL DEFAULT 0 " + ")";
+    }
+}
@@ -0,0 +1,369 @@
+package com.example.adama.response;
+
+import android.os.Process;
+import android.util.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+// Write-behind queue for new food entries. enqueue() only adds the entry to an in-memory
+// pending list, which the day queries in DBArguments merge into their results, and returns.
+// A single writer thread then appends it to a journal file and, DRAIN_DELAY_MS later,
+// moves everything pending into foodTable in one transaction.
+//
+// Each journaled entry gets a sequence number. The drain stores the highest one it applied
+// in queue_state in the same transaction as the rows, so replaying the journal after the
+// process died skips whatever already landed. The journal is emptied whenever the pending
+// list is.
+final class FoodWriteQueue {
+
+    private static final String TAG = "FoodWriteQueue";
+    private static final long DRAIN_DELAY_MS = 300;
+    private static final long RETRY_DELAY_MS = 5000;
+
+    // Journal records from before entries carried a profile
+    private static final int UNKNOWN_USER = -1;
+
+    static final class Entry {
+        final FoodObject food;
+        final int day;
+        final int userId;
+        // Shown in place of a row id until the entry is in foodTable
+        final int displayId;
+        // Assigned on the writer thread when the entry is journaled; 0 until then
+        long seq;
+
+        Entry(FoodObject food, int userId, int displayId) {
+            this.food = food;
+            this.day = FoodDate.toEpochDay(food.getTime());
+            this.userId = userId;
+            this.displayId = displayId;
+        }
+    }
+
+    private final DBArguments data;
+    private final File journalFile;
+    private final ScheduledExecutorService writer;
+
+    // Guarded by itself
+    private final ArrayList<Entry> pending = new ArrayList<>();
+    private int nextDisplayId = -1;
+
+    // Readers hold the read lock across their query and pendingFor, the drain holds the write
+    // lock across its commit and removing what it wrote, so no reader sees an entry twice or not at all
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final CountDownLatch recovered = new CountDownLatch(1);
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+    // Writer thread only
+    private FileOutputStream journal;
+    private long nextSeq = 1;
+
+    FoodWriteQueue(DBArguments data, File journalFile) {
+        this.data = data;
+        this.journalFile = journalFile;
+        writer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                return new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        runnable.run();
+                    }
+                }, "food-writer");
+            }
+        });
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                recover();
+            }
+        });
+    }
+
+    // Safe on the main thread: no disk access happens here. Returns the id the entry is
+    // listed under until it is written.
+    int enqueue(FoodObject food, int userId) {
+        final Entry entry;
+        synchronized (pending) {
+            entry = new Entry(food, userId, nextDisplayId--);
+            pending.add(entry);
+        }
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                append(entry);
+            }
+        });
+        scheduleDrain(DRAIN_DELAY_MS);
+        return entry.displayId;
+    }
+
+    void beginRead() {
+        awaitRecovery();
+        lock.readLock().lock();
+    }
+
+    void endRead() {
+        lock.readLock().unlock();
+    }
+
+    // Between beginRead and endRead
+    List<Entry> pendingFor(int userId, int day) {
+        ArrayList<Entry> entries = new ArrayList<>();
+        synchronized (pending) {
+            for (Entry entry : pending) {
+                if (entry.userId == userId && entry.day == day) {
+                    entries.add(entry);
+                }
+            }
+        }
+        return entries;
+    }
+
+    // Writes everything pending now rather than after the delay
+    Future<?> flush() {
+        return writer.submit(new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        });
+    }
+
+    // For DeleteDatabase and deleteRowsKat: entries not written yet go with the rest
+    void clear() {
+        awaitRecovery();
+        lock.writeLock().lock();
+        try {
+            synchronized (pending) {
+                pending.clear();
+            }
+            // Whatever is on the writer queue for them finds nothing to drain
+            writer.execute(new Runnable() {
+                @Override
+                public void run() {
+                    truncateJournal();
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void awaitRecovery() {
+        try {
+            recovered.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void scheduleDrain(long delayMs) {
+        if (drainScheduled.compareAndSet(false, true)) {
+            writer.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    drainScheduled.set(false);
+                    drain();
+                }
+            }, delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void recover() {
+        try {
+            long applied = data.queuedSeq();
+            long lastSeq = applied;
+            ArrayList<Entry> replay = new ArrayList<>();
+            // Small: it is emptied every time the queue drains
+            ByteBuffer records = ByteBuffer.wrap(readJournal());
+            while (true) {
+                int start = records.position();
+                Entry entry = readRecord(records);
+                if (entry == null) {
+                    // Drop a record cut off by the process dying halfway through writing it
+                    records.position(start);
+                    break;
+                }
+                lastSeq = Math.max(lastSeq, entry.seq);
+                if (entry.seq > applied) {
+                    int userId = entry.userId == UNKNOWN_USER ? data.currentUserId() : entry.userId;
+                    synchronized (pending) {
+                        Entry replayed = new Entry(entry.food, userId, nextDisplayId--);
+                        replayed.seq = entry.seq;
+                        replay.add(replayed);
+                    }
+                }
+            }
+            nextSeq = lastSeq + 1;
+            journal = new FileOutputStream(journalFile, true);
+            if (journal.getChannel().size() > records.position()) {
+                journal.getChannel().truncate(records.position());
+            }
+            if (!replay.isEmpty()) {
+                synchronized (pending) {
+                    pending.addAll(0, replay);
+                }
+                scheduleDrain(0);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Could not read " + journalFile, e);
+        } finally {
+            recovered.countDown();
+        }
+    }
+
+    private byte[] readJournal() throws IOException {
+        if (!journalFile.exists()) {
+            return new byte[0];
+        }
+        DataInputStream in = new DataInputStream(new FileInputStream(journalFile));
+        try {
+            byte[] bytes = new byte[(int) journalFile.length()];
+            in.readFully(bytes);
+            return bytes;
+        } finally {
+            in.close();
+        }
+    }
+
+    private void append(Entry entry) {
+        synchronized (pending) {
+            if (!pending.contains(entry)) {
+                // Cleared before it got here
+                return;
+            }
+        }
+        entry.seq = nextSeq++;
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.write(encode(entry));
+            journal.getFD().sync();
+        } catch (IOException e) {
+            // Still pending in memory, so it is written to the database all the same
+            Log.w(TAG, "Could not journal entry " + entry.seq, e);
+        }
+    }
+
+    private void drain() {
+        ArrayList<Entry> batch = new ArrayList<>();
+        long lastSeq = 0;
+        lock.writeLock().lock();
+        try {
+            synchronized (pending) {
+                for (Entry entry : pending) {
+                    if (entry.seq == 0) {
+                        break;
+                    }
+                    batch.add(entry);
+                    lastSeq = entry.seq;
+                }
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            data.applyQueued(batch, lastSeq);
+            synchronized (pending) {
+                pending.removeAll(batch);
+                if (pending.isEmpty()) {
+                    truncateJournal();
+                }
+            }
+        } catch (RuntimeException e) {
+            // SQLiteException, or IllegalStateException when the helper was closed under it
+            // (CalorieApplication.onTrimMemory); the next open picks up where this left off
+            Log.w(TAG, "Could not write " + batch.size() + " queued entries, retrying", e);
+            scheduleDrain(RETRY_DELAY_MS);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void truncateJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.getChannel().truncate(0);
+        } catch (IOException e) {
+            // Replaying it later skips the entries that are already applied
+            Log.w(TAG, "Could not truncate " + journalFile, e);
+        }
+    }
+
+    // Record: payload length, payload, CRC32 of the payload
+    private static byte[] encode(Entry entry) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(payload);
+        out.writeLong(entry.seq);
+        String name = entry.food.getFood_name();
+        out.writeBoolean(name != null);
+        out.writeUTF(name != null ? name : "");
+        out.writeInt(entry.food.getCalorie());
+        out.writeInt(entry.food.getQuantity());
+        out.writeInt(entry.day);
+        out.writeInt(entry.userId);
+        byte[] bytes = payload.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+
+        ByteArrayOutputStream record = new ByteArrayOutputStream(bytes.length + 8);
+        DataOutputStream framed = new DataOutputStream(record);
+        framed.writeInt(bytes.length);
+        framed.write(bytes);
+        framed.writeInt((int) crc.getValue());
+        return record.toByteArray();
+    }
+
+    // null at the end of the journal or at a torn or corrupt record
+    private static Entry readRecord(ByteBuffer records) throws IOException {
+        if (records.remaining() < 8) {
+            return null;
+        }
+        int length = records.getInt();
+        if (length <= 0 || length > records.remaining() - 4) {
+            return null;
+        }
+        int offset = records.position();
+        CRC32 crc = new CRC32();
+        crc.update(records.array(), offset, length);
+        records.position(offset + length);
+        if (records.getInt() != (int) crc.getValue()) {
+            return null;
+        }
+        DataInputStream payload = new DataInputStream(new ByteArrayInputStream(records.array(), offset, length));
+        long seq = payload.readLong();
+        boolean hasName = payload.readBoolean();
+        String name = payload.readUTF();
+        int calorie = payload.readInt();
+        int quantity = payload.readInt();
+        int day = payload.readInt();
+        int userId = payload.available() >= 4 ? payload.readInt() : UNKNOWN_USER;
+        Entry entry = new Entry(new FoodObject(hasName ? name : null, calorie, quantity,
+                day == FoodDate.INVALID ? null : FoodDate.fromEpochDay(day)), userId, 0);
+        entry.seq = seq;
+        return entry;
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.adama.response;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+// The whole log as one CSV file, for moving it to another device:
+//
+//     kaloriekounter,1
+//     user,<id>,<name>,<age>,<gender>
+//     food,<id>,<name>,<calorie>,<quantity>,<dd/MM/yyyy or empty>,<user_id>
+//     eat,<id>,<user_id>,<food_id>
+//
+// Both directions stream: export reads the tables in keyset pages of PAGE_SIZE rows, and
+// import writes row by row inside one transaction, which grows the WAL on disk rather than
+// the heap, so memory stays flat however long the log is.
+// Version 1 files have no user_id; their food rows go to the newest profile in the file,
+// which is whose they were.
+final class LogTransfer {
+
+    private static final String MAGIC = "kaloriekounter";
+    private static final int VERSION = 2;
+    private static final String USER = "user";
+    private static final String FOOD = "food";
+    private static final String EAT = "eat";
+
+    private static final int PAGE_SIZE = 5000;
+
+    private LogTransfer() {
+    }
+
+    // Returns the number of rows written
+    static long export(SQLiteDatabase db, Writer out) throws IOException {
+        CsvWriter csv = new CsvWriter(out);
+        csv.field(MAGIC).field(VERSION).endRow();
+        long rows = 0;
+        rows += exportTable(db, csv, USER, "SELECT " + DBHandler.USER_ID + ", " + DBHandler.USER_NAME + ", "
+                + DBHandler.USER_AGE + ", " + DBHandler.USER_GENDER + " FROM " + DBHandler.TABLE_USER);
+        rows += exportTable(db, csv, FOOD, "SELECT " + DBHandler.FOOD_ID + ", " + DBHandler.FOOD_NAME + ", "
+                + DBHandler.FOOD_CALORIE + ", " + DBHandler.FOOD_QUANTITY + ", " + DBHandler.FOOD_DATE + ", "
+                + DBHandler.FOOD_USER + " FROM " + DBHandler.TABLE_FOOD);
+        rows += exportTable(db, csv, EAT, "SELECT " + DBHandler.EAT_ID + ", " + DBHandler.EAT_USER + ", "
+                + DBHandler.EAT_FOOD + " FROM " + DBHandler.TABLE_EAT);
+        out.flush();
+        return rows;
+    }
+
+    // select's first column is the table's id. Paging on it rather than keeping one cursor
+    // open matters: a cursor refilling its window re-steps every row before the window.
+    private static long exportTable(SQLiteDatabase db, CsvWriter csv, String type, String select) throws IOException {
+        String page = select + " WHERE id > ? ORDER BY id LIMIT " + PAGE_SIZE;
+        long rows = 0;
+        long lastId = Long.MIN_VALUE;
+        while (true) {
+            Cursor cursor = db.rawQuery(page, new String[] {String.valueOf(lastId)});
+            int count = 0;
+            try {
+                int columns = cursor.getColumnCount();
+                while (cursor.moveToNext()) {
+                    csv.field(type);
+                    for (int i = 0; i < columns; i++) {
+                        if (cursor.isNull(i)) {
+                            csv.nullField();
+                        } else if (type.equals(FOOD) && i == 4) {
+                            csv.field(FoodDate.fromEpochDay(cursor.getInt(i)));
+                        } else if (cursor.getType(i) == Cursor.FIELD_TYPE_INTEGER) {
+                            csv.field(cursor.getLong(i));
+                        } else {
+                            csv.field(cursor.getString(i));
+                        }
+                    }
+                    csv.endRow();
+                    lastId = cursor.getLong(0);
+                    count++;
+                }
+            } finally {
+                cursor.close();
+            }
+            rows += count;
+            if (count < PAGE_SIZE) {
+                return rows;
+            }
+        }
+    }
+
+    // Replaces userTable, foodTable and eatTable with the file's rows, keeping their ids so
+    // the eat rows still point at the right user and food. daily_totals is rebuilt at the end.
+    // It is all one transaction: a file that fails part way changes nothing. Returns the
+    // number of rows read.
+    static long importLog(SQLiteDatabase db, DBHandler handler, Reader in) throws IOException {
+        CsvReader csv = new CsvReader(in);
+        if (!csv.next() || !csv.equals(0, MAGIC)) {
+            throw new IOException("Not a KalorieKounter export");
+        }
+        int version = csv.getInt(1);
+        if (version > VERSION) {
+            throw new IOException("Export version " + version + " is newer than this app");
+        }
+
+        SQLiteStatement user = db.compileStatement("INSERT OR REPLACE INTO " + DBHandler.TABLE_USER + "("
+                + DBHandler.USER_ID + ", " + DBHandler.USER_NAME + ", " + DBHandler.USER_AGE + ", "
+                + DBHandler.USER_GENDER + ") VALUES (?, ?, ?, ?)");
+        SQLiteStatement food = db.compileStatement("INSERT OR REPLACE INTO " + DBHandler.TABLE_FOOD + "("
+                + DBHandler.FOOD_ID + ", " + DBHandler.FOOD_NAME + ", " + DBHandler.FOOD_CALORIE + ", "
+                + DBHandler.FOOD_QUANTITY + ", " + DBHandler.FOOD_DATE + ", " + DBHandler.FOOD_USER
+                + ") VALUES (?, ?, ?, ?, ?, ?)");
+        SQLiteStatement eat = db.compileStatement("INSERT OR REPLACE INTO " + DBHandler.TABLE_EAT + "("
+                + DBHandler.EAT_ID + ", " + DBHandler.EAT_USER + ", " + DBHandler.EAT_FOOD + ") VALUES (?, ?, ?)");
+        long rows = 0;
+        long newestUser = 0;
+        db.beginTransaction();
+        try {
+            db.delete(DBHandler.TABLE_EAT, null, null);
+            db.delete(DBHandler.TABLE_FOOD, null, null);
+            db.delete(DBHandler.TABLE_USER, null, null);
+            db.delete(DBHandler.TABLE_DAILY_TOTALS, null, null);
+
+            while (csv.next()) {
+                if (csv.equals(0, USER)) {
+                    user.clearBindings();
+                    newestUser = Math.max(newestUser, csv.getLong(1));
+                    user.bindLong(1, csv.getLong(1));
+                    bindString(user, 2, csv, 2);
+                    bindLong(user, 3, csv, 3);
+                    bindString(user, 4, csv, 4);
+                    user.executeInsert();
+                } else if (csv.equals(0, FOOD)) {
+                    food.clearBindings();
+                    food.bindLong(1, csv.getLong(1));
+                    bindString(food, 2, csv, 2);
+                    bindLong(food, 3, csv, 3);
+                    bindLong(food, 4, csv, 4);
+                    if (!csv.isNull(5)) {
+                        int day = FoodDate.toEpochDay(csv.getString(5));
+                        if (day == FoodDate.INVALID) {
+                            throw new IOException("Bad date in row " + csv.rowNumber());
+                        }
+                        food.bindLong(5, day);
+                    }
+                    food.bindLong(6, version < 2 ? newestUser : csv.getLong(6));
+                    food.executeInsert();
+                } else if (csv.equals(0, EAT)) {
+                    eat.clearBindings();
+                    eat.bindLong(1, csv.getLong(1));
+                    bindLong(eat, 2, csv, 2);
+                    bindLong(eat, 3, csv, 3);
+                    eat.executeInsert();
+                } else {
+                    // Blank lines, and record types from a newer version
+                    continue;
+                }
+                rows++;
+            }
+            handler.rebuildDailyTotals(db);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            user.close();
+            food.close();
+            eat.close();
+        }
+        return rows;
+    }
+
+    private static void bindString(SQLiteStatement statement, int index, CsvReader csv, int field) {
+        if (!csv.isNull(field)) {
+            statement.bindString(index, csv.getString(field));
+        }
+    }
+
+    private static void bindLong(SQLiteStatement statement, int index, CsvReader csv, int field) throws IOException {
+        if (!csv.isNull(field)) {
+            statement.bindLong(index, csv.getLong(field));
+        }
+    }
+}
@@ -1,55 +1,125 @@
 package com.example.adama.response;
 
 import android.content.Intent;
-import android.database.Cursor;
 import android.os.Bundle;
+import android.content.DialogInterface;
+import android.support.v7.app.AlertDialog;
 import android.support.v7.app.AppCompatActivity;
 import android.view.View;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.EditText;
+import android.widget.Spinner;
+import android.widget.Toast;
+
+import java.io.File;
+import java.util.ArrayList;
 
 
 public class MainActivity extends AppCompatActivity
 {
+    private static final String EXPORT_FILE = "kaloriekounter.csv";
+
+    Spinner profiles;
     Button mainbutton;
+    Button exportButton;
+    Button importButton;
     EditText editName;
     EditText sexEdit;
     EditText age;
     boolean hasUser = false;
+    AsyncDBArguments data;
+    // The stored profiles in spinner order; the spinner's last item is "New profile"
+    ArrayList<UserObject> users = new ArrayList<>();
+    // Picked in the spinner, and the one DBArguments is using
+    UserObject selectedUser;
+    int currentUserId;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        long start = Metrics.begin();
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
-        final DBArguments data = new DBArguments(this);
-
-        Cursor cursor = data.selectUser();
+        data = new AsyncDBArguments(this);
 
+        profiles = (Spinner) findViewById(R.id.profiles);
         mainbutton = (Button) findViewById(R.id.mainbutton);
         editName = (EditText) findViewById(R.id.editName);
         sexEdit = (EditText) findViewById(R.id.sexedit);
         age = (EditText) findViewById(R.id.age);
+        exportButton = (Button) findViewById(R.id.exportbutton);
+        importButton = (Button) findViewById(R.id.importbutton);
 
+        data.getUsers(new AsyncDBArguments.Callback<ArrayList<UserObject>>() {
+            @Override
+            public void onResult(final ArrayList<UserObject> stored) {
+                data.selectUser(new AsyncDBArguments.Callback<UserObject>() {
+                    @Override
+                    public void onResult(UserObject user) {
+                        users = stored == null ? new ArrayList<UserObject>() : stored;
+                        ArrayList<String> names = new ArrayList<>();
+                        for (UserObject each : users) {
+                            names.add(each.getName());
+                        }
+                        names.add("New profile");
+                        ArrayAdapter<String> adapter = new ArrayAdapter<>(MainActivity.this,
+                                android.R.layout.simple_spinner_item, names);
+                        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+                        profiles.setAdapter(adapter);
+
+                        int position = users.size();
+                        if (user != null){
+                            currentUserId = user.getId();
+                            for (int i = 0; i < users.size(); i++) {
+                                if (users.get(i).getId() == currentUserId) {
+                                    position = i;
+                                }
+                            }
+                        }
+                        profiles.setSelection(position);
+                        showUser(user);
+                    }
+                });
+            }
+        });
 
-        cursor.moveToFirst();
-        if (cursor.getCount()>0){
-            hasUser = true;
-            editName.setText(cursor.getString(1));
-            age.setText(cursor.getInt(2)+"");
-            sexEdit.setText(cursor.getString(3));
+        profiles.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                showUser(position < users.size() ? users.get(position) : null);
+            }
 
-        }
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
 
         mainbutton.setOnClickListener(new View.OnClickListener() {
 
             @Override
             public void onClick(View view) {
-                Intent ja = new Intent(getApplicationContext(), FoodActivity.class);
+                final Intent ja = new Intent(getApplicationContext(), FoodActivity.class);
                 if (!hasUser){
                     int numberage = Integer.parseInt(age.getText().toString());
-                    data.InsertUser(new UserObject(editName.getText().toString(), numberage, sexEdit.getText().toString()));
-
+                    data.InsertUser(new UserObject(editName.getText().toString(), numberage, sexEdit.getText().toString()),
+                            new AsyncDBArguments.Callback<Long>() {
+                                @Override
+                                public void onResult(Long id) {
+                                    startActivity(ja);
+                                }
+                            });
+                    return;
+                }
+                if (selectedUser.getId() != currentUserId) {
+                    data.setCurrentUser(selectedUser.getId(), new AsyncDBArguments.Callback<UserObject>() {
+                        @Override
+                        public void onResult(UserObject user) {
+                            startActivity(ja);
+                        }
+                    });
+                    return;
                 }
                 startActivity(ja);
             }
@@ -57,8 +127,84 @@ public class MainActivity extends AppCompatActivity
 
         });
 
+        exportButton.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                final File file = exportFile();
+                data.exportLog(file, new AsyncDBArguments.Callback<Long>() {
+                    @Override
+                    public void onResult(Long rows) {
+                        Toast.makeText(MainActivity.this, rows == null ? "Export failed"
+                                : "Exported " + rows + " rows to " + file, Toast.LENGTH_LONG).show();
+                    }
+                });
+            }
+        });
 
+        // Replaces the whole log with the last export, e.g. one copied over from another device.
+        // Asks first; what gets replaced is kept in the safety snapshot either way.
+        importButton.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                final File file = exportFile();
+                if (!file.exists()) {
+                    Toast.makeText(MainActivity.this, "Nothing to import at " + file, Toast.LENGTH_LONG).show();
+                    return;
+                }
+                new AlertDialog.Builder(MainActivity.this)
+                        .setTitle("Import log")
+                        .setMessage("Replace every profile and entry on this device with " + file + "?")
+                        .setNegativeButton(android.R.string.cancel, null)
+                        .setPositiveButton("Replace", new DialogInterface.OnClickListener() {
+                            @Override
+                            public void onClick(DialogInterface dialog, int which) {
+                                importLog(file);
+                            }
+                        })
+                        .show();
+            }
+        });
+
+
+        Metrics.end(Metrics.SCREEN_MAIN, start, 0);
+    }
+
+    private void importLog(File file) {
+        data.importLog(file, new AsyncDBArguments.Callback<Long>() {
+            @Override
+            public void onResult(Long rows) {
+                Toast.makeText(MainActivity.this, rows == null ? "Import failed"
+                        : "Imported " + rows + " rows", Toast.LENGTH_LONG).show();
+                if (rows != null) {
+                    // Brings in the file's profiles
+                    recreate();
+                }
+            }
+        });
     }
 
+    // null for a new profile: the fields are left empty to fill in
+    private void showUser(UserObject user) {
+        selectedUser = user;
+        hasUser = user != null;
+        editName.setText(hasUser ? user.getName() : "");
+        age.setText(hasUser ? user.getAge() + "" : "");
+        sexEdit.setText(hasUser ? user.getGender() : "");
+    }
 
+    // App-specific external storage needs no permission from API 19 on; internal storage
+    // when there is no external storage mounted
+    private File exportFile() {
+        File dir = getExternalFilesDir("export");
+        if (dir == null) {
+            dir = getFilesDir();
+        }
+        return new File(dir, EXPORT_FILE);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        data.cancelAll();
+    }
 }
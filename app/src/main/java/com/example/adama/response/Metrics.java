@@ -0,0 +1,289 @@
+package com.example.adama.response;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+// Always-on timings and counters for the database calls and screen start-up. Recording
+// only touches preallocated arrays, so it can sit on every query without adding garbage.
+//
+//     long start = Metrics.begin();
+//     try { ... } finally { Metrics.end(Metrics.GET_ALL_FOODS, start, rowsReturned); }
+//
+// Rows scanned are counted by MetricsCursor as cursors move and charged to the innermost
+// begin/end on the same thread.
+public final class Metrics {
+
+    public static final int DELETE_DATABASE = 0;
+    public static final int CREATE_DATABASE = 1;
+    public static final int DELETE_ROWS = 2;
+    public static final int INSERT_USER = 3;
+    public static final int GET_USER = 4;
+    public static final int SELECT_USER = 5;
+    public static final int INSERT_FOOD = 6;
+    public static final int INSERT_FOODS = 7;
+    public static final int INSERT_EATS = 8;
+    public static final int DELETE_FOOD = 9;
+    public static final int REBUILD_TOTALS = 10;
+    public static final int GET_TOTALS = 11;
+    public static final int SELECT_FOODS = 12;
+    public static final int GET_ALL_FOODS = 13;
+    public static final int FOOD_PAGE = 14;
+    public static final int HISTORY_PAGE = 15;
+    public static final int SEARCH_CATALOGUE = 16;
+    public static final int SELECT_EAT = 17;
+    public static final int INSERT_EAT = 18;
+    public static final int CALL_FOO = 19;
+    public static final int FOO = 20;
+    public static final int SCREEN_START = 21;
+    public static final int SCREEN_MAIN = 22;
+    public static final int SCREEN_FOOD = 23;
+    public static final int SCREEN_PLUS = 24;
+    public static final int SCREEN_LIST = 25;
+    public static final int SCREEN_VIEW_DATA = 26;
+    public static final int FOODS_CURSOR = 27;
+    public static final int EXPORT_LOG = 28;
+    public static final int IMPORT_LOG = 29;
+    public static final int BACKUP = 30;
+    public static final int RESTORE = 31;
+    public static final int MIGRATE = 32;
+    public static final int BUILD_INDEX = 33;
+    public static final int GET_USERS = 34;
+    public static final int SET_CURRENT_USER = 35;
+    public static final int PREFETCH_DAYS = 36;
+    public static final int MONTH_TOTALS = 37;
+
+    private static final String[] NAMES = {
+            "DeleteDatabase", "CreateDatabase", "deleteRowsKat", "InsertUser", "getUser", "selectUser",
+            "InsertFoodTest", "insertFoods", "insertEats", "deleteFood", "rebuildDailyTotals", "getTotals",
+            "selectFood_Test", "getallfoods", "getFoodPage", "getHistoryPage", "searchCatalogue", "selectEat",
+            "InsertEatTest", "callFoo", "DBHandler.foo", "Startactivity.onCreate", "MainActivity.onCreate",
+            "FoodActivity.onCreate", "PlusButtonActivity.onCreate", "ListFoodActivity.onCreate",
+            "ViewDataActivity.onCreate", "getFoodsCursor", "exportLog", "importLog",
+            "backup", "restore", "Migration.run", "DBHandler.buildIndexes", "getUsers", "setCurrentUser",
+            "prefetchDays", "getMonthTotals"};
+
+    private static final int OPS = NAMES.length;
+
+    // Bucket i holds durations below 2^i microseconds; the last one takes everything longer
+    private static final int BUCKETS = 22;
+
+    // Nesting deeper than this (callFoo -> getUser -> ...) is still timed, just not charged rows
+    private static final int MAX_DEPTH = 8;
+
+    private static final Object lock = new Object();
+    private static final long[] counts = new long[OPS];
+    private static final long[] totalNanos = new long[OPS];
+    private static final long[] maxNanos = new long[OPS];
+    private static final long[] rowsScanned = new long[OPS];
+    private static final long[] rowsReturned = new long[OPS];
+    private static final long[] histogram = new long[OPS * BUCKETS];
+    private static long cursorsOpened;
+    private static long cursorsClosed;
+    private static long dayCacheHits;
+    private static long dayCacheMisses;
+    private static long dayCacheEvictions;
+    private static long since = System.currentTimeMillis();
+
+    private static final ThreadLocal<Frame> frames = new ThreadLocal<Frame>() {
+        @Override
+        protected Frame initialValue() {
+            return new Frame();
+        }
+    };
+
+    private static final class Frame {
+        long scanned;
+        final long[] baselines = new long[MAX_DEPTH];
+        int depth;
+    }
+
+    private Metrics() {
+    }
+
+    public static long begin() {
+        Frame frame = frames.get();
+        if (frame.depth < MAX_DEPTH) {
+            frame.baselines[frame.depth] = frame.scanned;
+        }
+        frame.depth++;
+        return System.nanoTime();
+    }
+
+    public static void end(int op, long start, long returned) {
+        long elapsed = System.nanoTime() - start;
+        Frame frame = frames.get();
+        long scanned = 0;
+        if (frame.depth > 0) {
+            frame.depth--;
+            if (frame.depth < MAX_DEPTH) {
+                scanned = frame.scanned - frame.baselines[frame.depth];
+            }
+        }
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(elapsed / 1000));
+        synchronized (lock) {
+            counts[op]++;
+            totalNanos[op] += elapsed;
+            if (elapsed > maxNanos[op]) maxNanos[op] = elapsed;
+            rowsScanned[op] += scanned;
+            rowsReturned[op] += returned;
+            histogram[op * BUCKETS + bucket]++;
+        }
+    }
+
+    static void cursorOpened() {
+        synchronized (lock) {
+            cursorsOpened++;
+        }
+    }
+
+    static void cursorClosed() {
+        synchronized (lock) {
+            cursorsClosed++;
+        }
+    }
+
+    static void dayCacheHit() {
+        synchronized (lock) {
+            dayCacheHits++;
+        }
+    }
+
+    static void dayCacheMiss() {
+        synchronized (lock) {
+            dayCacheMisses++;
+        }
+    }
+
+    static void dayCacheEviction() {
+        synchronized (lock) {
+            dayCacheEvictions++;
+        }
+    }
+
+    // hits, misses and evictions of DayCache since the last reset
+    public static long[] dayCacheCounts() {
+        synchronized (lock) {
+            return new long[] {dayCacheHits, dayCacheMisses, dayCacheEvictions};
+        }
+    }
+
+    static void rowsScanned(int rows) {
+        frames.get().scanned += rows;
+    }
+
+    public static long openCursors() {
+        synchronized (lock) {
+            return cursorsOpened - cursorsClosed;
+        }
+    }
+
+    public static void reset() {
+        synchronized (lock) {
+            for (int i = 0; i < OPS; i++) {
+                counts[i] = 0;
+                totalNanos[i] = 0;
+                maxNanos[i] = 0;
+                rowsScanned[i] = 0;
+                rowsReturned[i] = 0;
+            }
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] = 0;
+            }
+            // Cursors still open stay counted, so leaks show up across a reset
+            cursorsOpened -= cursorsClosed;
+            cursorsClosed = 0;
+            dayCacheHits = 0;
+            dayCacheMisses = 0;
+            dayCacheEvictions = 0;
+            since = System.currentTimeMillis();
+        }
+    }
+
+    // Plain text, one line per operation that has run; times in milliseconds.
+    // Percentiles are the upper bound of the histogram bucket they fall in.
+    public static void dump(Appendable out) throws IOException {
+        long[] snapshotCounts = new long[OPS];
+        long[] snapshotTotal = new long[OPS];
+        long[] snapshotMax = new long[OPS];
+        long[] snapshotScanned = new long[OPS];
+        long[] snapshotReturned = new long[OPS];
+        long[] snapshotHistogram = new long[histogram.length];
+        long opened;
+        long closed;
+        long[] dayCache;
+        long from;
+        synchronized (lock) {
+            System.arraycopy(counts, 0, snapshotCounts, 0, OPS);
+            System.arraycopy(totalNanos, 0, snapshotTotal, 0, OPS);
+            System.arraycopy(maxNanos, 0, snapshotMax, 0, OPS);
+            System.arraycopy(rowsScanned, 0, snapshotScanned, 0, OPS);
+            System.arraycopy(rowsReturned, 0, snapshotReturned, 0, OPS);
+            System.arraycopy(histogram, 0, snapshotHistogram, 0, histogram.length);
+            opened = cursorsOpened;
+            closed = cursorsClosed;
+            dayCache = new long[] {dayCacheHits, dayCacheMisses, dayCacheEvictions};
+            from = since;
+        }
+
+        out.append("since ").append(String.valueOf(from))
+                .append(" cursors opened=").append(String.valueOf(opened))
+                .append(" closed=").append(String.valueOf(closed))
+                .append(" open=").append(String.valueOf(opened - closed)).append('\n');
+        out.append("day cache hits=").append(String.valueOf(dayCache[0]))
+                .append(" misses=").append(String.valueOf(dayCache[1]))
+                .append(" evictions=").append(String.valueOf(dayCache[2])).append('\n');
+        out.append("operation count mean p50 p90 p99 max scanned returned\n");
+        for (int op = 0; op < OPS; op++) {
+            long count = snapshotCounts[op];
+            if (count == 0) {
+                continue;
+            }
+            out.append(NAMES[op]).append(' ').append(String.valueOf(count))
+                    .append(' ').append(millis(snapshotTotal[op] / count))
+                    .append(' ').append(percentile(snapshotHistogram, op, count, 50))
+                    .append(' ').append(percentile(snapshotHistogram, op, count, 90))
+                    .append(' ').append(percentile(snapshotHistogram, op, count, 99))
+                    .append(' ').append(millis(snapshotMax[op]))
+                    .append(' ').append(String.valueOf(snapshotScanned[op]))
+                    .append(' ').append(String.valueOf(snapshotReturned[op])).append('\n');
+        }
+    }
+
+    public static String dump() {
+        StringBuilder builder = new StringBuilder();
+        try {
+            dump(builder);
+        } catch (IOException e) {
+            // StringBuilder doesn't throw
+        }
+        return builder.toString();
+    }
+
+    public static void dumpToFile(File file) throws IOException {
+        Writer writer = new FileWriter(file);
+        try {
+            dump(writer);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static String percentile(long[] histogram, int op, long count, int percent) {
+        long rank = (count * percent + 99) / 100;
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += histogram[op * BUCKETS + bucket];
+            if (seen >= rank) {
+                return bucket == BUCKETS - 1 ? "inf" : millis((1L << bucket) * 1000);
+            }
+        }
+        return "inf";
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.US, "%.3f", nanos / 1e6);
+    }
+}
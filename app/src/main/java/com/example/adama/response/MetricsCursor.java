@@ -0,0 +1,45 @@
+package com.example.adama.response;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteCursor;
+import android.database.sqlite.SQLiteCursorDriver;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteQuery;
+
+// Every cursor DBHandler's database hands out, so Metrics can count opens, closes and the
+// rows actually stepped through, including cursors returned to callers
+final class MetricsCursor extends SQLiteCursor {
+
+    static final SQLiteDatabase.CursorFactory FACTORY = new SQLiteDatabase.CursorFactory() {
+        @Override
+        public Cursor newCursor(SQLiteDatabase db, SQLiteCursorDriver driver, String editTable, SQLiteQuery query) {
+            return new MetricsCursor(driver, editTable, query);
+        }
+    };
+
+    private int furthest = -1;
+    private boolean closed;
+
+    private MetricsCursor(SQLiteCursorDriver driver, String editTable, SQLiteQuery query) {
+        super(driver, editTable, query);
+        Metrics.cursorOpened();
+    }
+
+    @Override
+    public boolean onMove(int oldPosition, int newPosition) {
+        if (newPosition > furthest) {
+            Metrics.rowsScanned(newPosition - furthest);
+            furthest = newPosition;
+        }
+        return super.onMove(oldPosition, newPosition);
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            Metrics.cursorClosed();
+        }
+        super.close();
+    }
+}
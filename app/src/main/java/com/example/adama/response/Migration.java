@@ -0,0 +1,37 @@
+package com.example.adama.response;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+// One step of the schema's history, taking the database from version - 1 to version.
+// A step spells out its SQL as the schema stood at its version instead of using the
+// constants in FoodSql and DBHandler, which describe the current schema; otherwise a
+// later change to a constant would quietly change what an old step does.
+abstract class Migration {
+
+    private static final String TAG = "Migration";
+
+    final int version;
+
+    Migration(int version) {
+        this.version = version;
+    }
+
+    abstract void migrate(SQLiteDatabase db);
+
+    // SQLiteOpenHelper already runs the whole upgrade in one transaction, so this nests
+    // inside it: a step that throws rolls every step back and leaves the old version in
+    // place, and the next open tries again from there.
+    final void run(SQLiteDatabase db) {
+        long start = Metrics.begin();
+        db.beginTransaction();
+        try {
+            migrate(db);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            Metrics.end(Metrics.MIGRATE, start, 0);
+        }
+        Log.i(TAG, "Migrated to version " + version + " in " + (System.nanoTime() - start) / 1000000 + " ms");
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.adama.response;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.support.v4.content.ContextCompat;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.View;
+
+import java.util.Calendar;
+
+// A month as a grid of days in week rows, each coloured by how its calories compare with
+// the target (see MonthTotals.getLevel), shown under the FoodActivity calendar. Tapping a
+// day reports it to the listener. Paints and the cell rectangle are made once, so
+// redrawing doesn't allocate.
+public class MonthHeatmap extends View {
+
+    public interface OnDayClickListener {
+        void onDayClick(int day);
+    }
+
+    private static final int COLUMNS = 7;
+
+    private final Paint[] levelPaints = new Paint[5];
+    private final Paint selectedPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final RectF cell = new RectF();
+    private final float gap;
+    private final int firstDayOfWeek = Calendar.getInstance().getFirstDayOfWeek();
+
+    private MonthTotals month;
+    private int selectedDay = FoodDate.INVALID;
+    private OnDayClickListener listener;
+
+    public MonthHeatmap(Context context) {
+        this(context, null);
+    }
+
+    public MonthHeatmap(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        int[] colors = new int[] {R.color.heatmapEmpty, R.color.heatmapLogged, R.color.heatmapUnder,
+                R.color.heatmapNear, R.color.heatmapOver};
+        for (int level = 0; level < colors.length; level++) {
+            levelPaints[level] = new Paint(Paint.ANTI_ALIAS_FLAG);
+            levelPaints[level].setColor(ContextCompat.getColor(context, colors[level]));
+        }
+        float density = getResources().getDisplayMetrics().density;
+        gap = 2 * density;
+        selectedPaint.setStyle(Paint.Style.STROKE);
+        selectedPaint.setStrokeWidth(2 * density);
+        selectedPaint.setColor(ContextCompat.getColor(context, android.R.color.holo_blue_dark));
+        textPaint.setTextAlign(Paint.Align.CENTER);
+        textPaint.setColor(ContextCompat.getColor(context, android.R.color.black));
+    }
+
+    public void setMonth(MonthTotals month) {
+        this.month = month;
+        invalidate();
+    }
+
+    // The day to outline, if it falls in the month shown
+    public void setSelectedDay(int day) {
+        selectedDay = day;
+        invalidate();
+    }
+
+    public void setOnDayClickListener(OnDayClickListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (month == null) {
+            return;
+        }
+        float size = cellSize();
+        textPaint.setTextSize(size * 0.45f);
+        float textOffset = (textPaint.descent() + textPaint.ascent()) / 2;
+        int offset = offset();
+        for (int dayOfMonth = 1; dayOfMonth <= month.getLength(); dayOfMonth++) {
+            int position = offset + dayOfMonth - 1;
+            float left = getPaddingLeft() + (position % COLUMNS) * size;
+            float top = getPaddingTop() + (position / COLUMNS) * size;
+            cell.set(left + gap, top + gap, left + size - gap, top + size - gap);
+            canvas.drawRoundRect(cell, gap, gap, levelPaints[month.getLevel(dayOfMonth)]);
+            if (month.getFirstDay() + dayOfMonth - 1 == selectedDay) {
+                canvas.drawRoundRect(cell, gap, gap, selectedPaint);
+            }
+            canvas.drawText(NumberStrings.valueOf(dayOfMonth), cell.centerX(), cell.centerY() - textOffset, textPaint);
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (month == null || listener == null) {
+            return false;
+        }
+        if (event.getActionMasked() == MotionEvent.ACTION_UP) {
+            float size = cellSize();
+            int column = (int) ((event.getX() - getPaddingLeft()) / size);
+            int row = (int) ((event.getY() - getPaddingTop()) / size);
+            int dayOfMonth = row * COLUMNS + column - offset() + 1;
+            if (column >= 0 && column < COLUMNS && row >= 0 && dayOfMonth >= 1 && dayOfMonth <= month.getLength()) {
+                performClick();
+                listener.onDayClick(month.getFirstDay() + dayOfMonth - 1);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean performClick() {
+        return super.performClick();
+    }
+
+    // Square cells, as large as both the width and the rows the month needs allow
+    private float cellSize() {
+        int rows = (offset() + month.getLength() + COLUMNS - 1) / COLUMNS;
+        float width = getWidth() - getPaddingLeft() - getPaddingRight();
+        float height = getHeight() - getPaddingTop() - getPaddingBottom();
+        return Math.min(width / COLUMNS, height / rows);
+    }
+
+    // Empty cells before the 1st, for a week starting on the locale's first day
+    private int offset() {
+        // Epoch day 0 was a Thursday
+        int dayOfWeek = ((month.getFirstDay() + 4) % 7 + 7) % 7 + Calendar.SUNDAY;
+        return (dayOfWeek - firstDayOfWeek + COLUMNS) % COLUMNS;
+    }
+}
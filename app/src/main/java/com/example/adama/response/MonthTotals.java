@@ -0,0 +1,73 @@
+package com.example.adama.response;
+
+// One month of daily calories for the FoodActivity heatmap: calories[i] is day i + 1 of the
+// month, with the days past its end left at 0, and the profile's daily target to judge
+// them by (0 when there is no profile).
+public class MonthTotals {
+
+    public static final int MAX_DAYS = 31;
+
+    // How a day compares with the target
+    public static final int EMPTY = 0;
+    // Something logged, but no target to compare with
+    public static final int LOGGED = 1;
+    public static final int UNDER = 2;
+    // Within NEAR_PERCENT below the target, or on it
+    public static final int NEAR = 3;
+    public static final int OVER = 4;
+
+    static final int NEAR_PERCENT = 10;
+
+    private final int firstDay;
+    private final int length;
+    private final int[] calories;
+    private final int target;
+
+    MonthTotals(int firstDay, int length, int[] calories, int target) {
+        this.firstDay = firstDay;
+        this.length = length;
+        this.calories = calories;
+        this.target = target;
+    }
+
+    // Epoch day of the 1st
+    public int getFirstDay() {
+        return firstDay;
+    }
+
+    // Days in the month
+    public int getLength() {
+        return length;
+    }
+
+    public int getCalories(int dayOfMonth) {
+        return calories[dayOfMonth - 1];
+    }
+
+    public int getTarget() {
+        return target;
+    }
+
+    public int getLevel(int dayOfMonth) {
+        int eaten = calories[dayOfMonth - 1];
+        if (eaten == 0) {
+            return EMPTY;
+        }
+        if (target == 0) {
+            return LOGGED;
+        }
+        if (eaten > target) {
+            return OVER;
+        }
+        return (long) eaten * 100 >= (long) target * (100 - NEAR_PERCENT) ? NEAR : UNDER;
+    }
+
+    // Epoch day of the 1st of the month holding day, and of the last day
+    public static int monthStart(int day) {
+        return CalorieTotals.bucketStart(day, CalorieTotals.MONTH);
+    }
+
+    public static int monthEnd(int day) {
+        return CalorieTotals.bucketStart(monthStart(day) + MAX_DAYS, CalorieTotals.MONTH) - 1;
+    }
+}
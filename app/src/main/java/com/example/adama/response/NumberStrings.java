@@ -0,0 +1,25 @@
+package com.example.adama.response;
+
+// String forms of the small numbers the lists show over and over (calories, quantities),
+// made once and then shared, so binding a row doesn't allocate a new String each time
+final class NumberStrings {
+
+    private static final int CACHE_SIZE = 4096;
+    // Filled lazily; a race only means the same String is made twice
+    private static final String[] cache = new String[CACHE_SIZE];
+
+    private NumberStrings() {
+    }
+
+    static String valueOf(int value) {
+        if (value < 0 || value >= CACHE_SIZE) {
+            return String.valueOf(value);
+        }
+        String cached = cache[value];
+        if (cached == null) {
+            cached = String.valueOf(value);
+            cache[value] = cached;
+        }
+        return cached;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.adama.response;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+// Keeps one query's result current. observe() runs the query, and after that every change
+// DBArguments reports for a day in [fromDay, toDay] runs it again. A burst of changes (an
+// import, the write queue draining) becomes one re-run DEBOUNCE_MS after the last change,
+// or MAX_WAIT_MS after the first if they keep coming. Queries go through AsyncDBArguments
+// under the given tag, so they run off the main thread and a re-run replaces one still in
+// flight. Use from the main thread and call stop() from onDestroy.
+public class ObservableQuery<T> {
+
+    private static final long DEBOUNCE_MS = 100;
+    private static final long MAX_WAIT_MS = 1000;
+
+    private final AsyncDBArguments data;
+    private final DBArguments database;
+    private final String tag;
+    private final AsyncDBArguments.Callback<T> callback;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    // Read by the listener on writing threads
+    private volatile int fromDay;
+    private volatile int toDay;
+    private volatile boolean observing;
+
+    // Main thread only
+    private AsyncDBArguments.Query<T> query;
+    private long firstChange;
+
+    private final DBArguments.ChangeListener listener = new DBArguments.ChangeListener() {
+        @Override
+        public void onChanged(int day) {
+            if (observing && (day == DBArguments.ALL_DAYS || (day >= fromDay && day <= toDay))) {
+                handler.post(changed);
+            }
+        }
+    };
+
+    private final Runnable changed = new Runnable() {
+        @Override
+        public void run() {
+            if (!observing) {
+                return;
+            }
+            long now = SystemClock.uptimeMillis();
+            if (firstChange == 0) {
+                firstChange = now;
+            }
+            handler.removeCallbacks(rerun);
+            handler.postDelayed(rerun, Math.max(0, Math.min(DEBOUNCE_MS, firstChange + MAX_WAIT_MS - now)));
+        }
+    };
+
+    private final Runnable rerun = new Runnable() {
+        @Override
+        public void run() {
+            firstChange = 0;
+            if (observing) {
+                data.submit(tag, query, callback);
+            }
+        }
+    };
+
+    ObservableQuery(AsyncDBArguments data, DBArguments database, String tag, AsyncDBArguments.Callback<T> callback) {
+        this.data = data;
+        this.database = database;
+        this.tag = tag;
+        this.callback = callback;
+    }
+
+    // Switches to a new query and range, e.g. another day, and runs it now
+    public void observe(int fromDay, int toDay, AsyncDBArguments.Query<T> query) {
+        this.fromDay = fromDay;
+        this.toDay = toDay;
+        this.query = query;
+        if (!observing) {
+            observing = true;
+            database.addChangeListener(listener);
+        }
+        handler.removeCallbacks(rerun);
+        firstChange = 0;
+        data.submit(tag, query, callback);
+    }
+
+    public void stop() {
+        observing = false;
+        database.removeChangeListener(listener);
+        handler.removeCallbacks(changed);
+        handler.removeCallbacks(rerun);
+        data.cancel(tag);
+    }
+}
@@ -1,7 +1,6 @@
 package com.example.adama.response;
 
 import android.content.Intent;
-import android.database.Cursor;
 import android.os.Bundle;
 import android.support.v7.app.AppCompatActivity;
 import android.view.View;
@@ -12,6 +11,8 @@ import android.widget.Toast;
 
 //push
 public class    PlusButtonActivity extends AppCompatActivity {
+    static final int REQUEST_LIST_FOOD = 1;
+
 Button complete;
     EditText enterfood;
     EditText enteramount;
@@ -19,9 +20,11 @@ Button complete;
     boolean foodentered = false;
     String timeholder;
     Button viewfoodlist;
+    AsyncDBArguments data;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        long start = Metrics.begin();
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_plus_button);
 
@@ -32,22 +35,19 @@ Button complete;
 
         }
 
-        final DBArguments data = new DBArguments(this);
-
-        Cursor cursor = data.selectFood_Test();
+        data = new AsyncDBArguments(this);
 
         enterfood = (EditText) findViewById(R.id.enterfood);
         enteramount = (EditText) findViewById(R.id.enteramount);
         entercalorie = (EditText) findViewById(R.id.entercalorie) ;
 
-        cursor.moveToFirst();
-
         viewfoodlist = (Button) findViewById(R.id.viewfoodlist);
         viewfoodlist.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View view) {
                 Intent viewfood = new Intent(getApplicationContext(), ListFoodActivity.class);
-                startActivity(viewfood);
+                viewfood.putExtra("dato", timeholder);
+                startActivityForResult(viewfood, REQUEST_LIST_FOOD);
             }
         });
 
@@ -57,13 +57,12 @@ Button complete;
             public void onClick(View view) {
                 Toast.makeText(getApplicationContext(), "Food, amount and calorie is now added", Toast.LENGTH_SHORT).show();
 
-                Intent xa = new Intent(getApplicationContext(), FoodActivity.class);
                     int calorie = Integer.parseInt(entercalorie.getText().toString());
                     int amountfood = Integer.parseInt(enteramount.getText().toString());
 
-                data.InsertFoodTest(new FoodObject(enterfood.getText().toString(), calorie , amountfood, timeholder));
-
-                startActivity(xa);
+                // Written to disk in the background; FoodActivity's list picks it up from the queue
+                data.queueFood(new FoodObject(enterfood.getText().toString(), calorie , amountfood, timeholder));
+                finish();
 
 
                 entercalorie.setText(" ");
@@ -75,5 +74,22 @@ Button complete;
 
 
         });
-    }}
+        Metrics.end(Metrics.SCREEN_PLUS, start, 0);
+    }
+
+    @Override
+    protected void onActivityResult(int requestCode, int resultCode, Intent result) {
+        super.onActivityResult(requestCode, resultCode, result);
+        // A food picked from the list goes straight back to FoodActivity
+        if (requestCode == REQUEST_LIST_FOOD && resultCode == RESULT_OK) {
+            finish();
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        data.cancelAll();
+    }
+}
 
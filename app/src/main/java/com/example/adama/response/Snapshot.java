@@ -0,0 +1,511 @@
+package com.example.adama.response;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.zip.CRC32;
+
+// Binary copy of userTable, foodTable and eatTable for backup and restore. Much smaller and
+// faster than LogTransfer's CSV: years of entries come to a few hundred kilobytes.
+//
+//     "KKSN" version:varint
+//     users: count:varint, then id name age gender per row
+//     foods: count:varint, then id name calorie quantity date user_id per row
+//     eats:  count:varint, then id user_id food_id per row
+//     CRC32 of everything before it, 4 bytes big-endian
+//
+// Ids are written as the difference from the previous row's id, which is almost always 1,
+// and dates as the difference from the previous food's date. Integers are zigzag varints,
+// with 0 kept for NULL where the column allows it. A food name is an index into the names
+// seen so far in the file, or the next index followed by the name in UTF-8 the first time.
+// Version 1 had no user_id; its foods go to the newest profile, which is whose they were.
+final class Snapshot {
+
+    private static final int MAGIC = 0x4B4B534E;
+    private static final int VERSION = 2;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int PAGE_SIZE = 5000;
+    // Nothing the screens can enter comes close; anything longer is a damaged file
+    private static final int MAX_STRING = 64 * 1024;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private Snapshot() {
+    }
+
+    // Returns the number of rows written. The caller writes to a temporary file and renames it.
+    static long write(SQLiteDatabase db, File file) throws IOException {
+        FileOutputStream stream = new FileOutputStream(file);
+        try {
+            Output out = new Output(stream.getChannel());
+            out.putInt(MAGIC);
+            out.putVarint(VERSION);
+            long rows;
+            // Only reads, but the transaction keeps the three tables consistent with each other
+            db.beginTransaction();
+            try {
+                rows = writeUsers(db, out) + writeFoods(db, out) + writeEats(db, out);
+            } finally {
+                db.endTransaction();
+            }
+            out.finish();
+            stream.getChannel().force(true);
+            return rows;
+        } finally {
+            stream.close();
+        }
+    }
+
+    private static long writeUsers(SQLiteDatabase db, Output out) throws IOException {
+        long count = count(db, DBHandler.TABLE_USER);
+        out.putVarint(count);
+        long lastId = 0;
+        long written = 0;
+        String select = "SELECT " + DBHandler.USER_ID + ", " + DBHandler.USER_NAME + ", " + DBHandler.USER_AGE + ", "
+                + DBHandler.USER_GENDER + " FROM " + DBHandler.TABLE_USER;
+        Cursor cursor = null;
+        try {
+            while ((cursor = page(db, select, cursor, lastId)) != null) {
+                while (cursor.moveToNext()) {
+                    long id = cursor.getLong(0);
+                    out.putSigned(id - lastId);
+                    out.putString(cursor.isNull(1) ? null : cursor.getString(1));
+                    out.putNullable(cursor, 2);
+                    out.putString(cursor.isNull(3) ? null : cursor.getString(3));
+                    lastId = id;
+                    written++;
+                }
+            }
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        checkCount(DBHandler.TABLE_USER, count, written);
+        return written;
+    }
+
+    private static long writeFoods(SQLiteDatabase db, Output out) throws IOException {
+        long count = count(db, DBHandler.TABLE_FOOD);
+        out.putVarint(count);
+        HashMap<String, Integer> names = new HashMap<>();
+        long lastId = 0;
+        long lastDay = 0;
+        long written = 0;
+        String select = "SELECT " + DBHandler.FOOD_ID + ", " + DBHandler.FOOD_NAME + ", " + DBHandler.FOOD_CALORIE
+                + ", " + DBHandler.FOOD_QUANTITY + ", " + DBHandler.FOOD_DATE + ", " + DBHandler.FOOD_USER
+                + " FROM " + DBHandler.TABLE_FOOD;
+        Cursor cursor = null;
+        try {
+            while ((cursor = page(db, select, cursor, lastId)) != null) {
+                while (cursor.moveToNext()) {
+                    long id = cursor.getLong(0);
+                    out.putSigned(id - lastId);
+                    if (cursor.isNull(1)) {
+                        out.putVarint(0);
+                    } else {
+                        String name = cursor.getString(1);
+                        Integer index = names.get(name);
+                        if (index != null) {
+                            out.putVarint(index);
+                        } else {
+                            names.put(name, names.size() + 1);
+                            out.putVarint(names.size());
+                            out.putBytes(name.getBytes(UTF_8));
+                        }
+                    }
+                    out.putNullable(cursor, 2);
+                    out.putNullable(cursor, 3);
+                    if (cursor.isNull(4)) {
+                        out.putVarint(0);
+                    } else {
+                        long day = cursor.getLong(4);
+                        out.putVarint(zigzag(day - lastDay) + 1);
+                        lastDay = day;
+                    }
+                    out.putVarint(cursor.getLong(5));
+                    lastId = id;
+                    written++;
+                }
+            }
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        checkCount(DBHandler.TABLE_FOOD, count, written);
+        return written;
+    }
+
+    private static long writeEats(SQLiteDatabase db, Output out) throws IOException {
+        long count = count(db, DBHandler.TABLE_EAT);
+        out.putVarint(count);
+        long lastId = 0;
+        long written = 0;
+        String select = "SELECT " + DBHandler.EAT_ID + ", " + DBHandler.EAT_USER + ", " + DBHandler.EAT_FOOD
+                + " FROM " + DBHandler.TABLE_EAT;
+        Cursor cursor = null;
+        try {
+            while ((cursor = page(db, select, cursor, lastId)) != null) {
+                while (cursor.moveToNext()) {
+                    long id = cursor.getLong(0);
+                    out.putSigned(id - lastId);
+                    out.putNullable(cursor, 1);
+                    out.putNullable(cursor, 2);
+                    lastId = id;
+                    written++;
+                }
+            }
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        checkCount(DBHandler.TABLE_EAT, count, written);
+        return written;
+    }
+
+    private static long count(SQLiteDatabase db, String table) {
+        Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM " + table, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    // Closes previous and opens the page after lastId, or returns null once previous came back short.
+    // Pages keep each cursor window small; one cursor over the table would re-step to refill it.
+    private static Cursor page(SQLiteDatabase db, String select, Cursor previous, long lastId) {
+        if (previous != null) {
+            boolean more = previous.getCount() == PAGE_SIZE;
+            previous.close();
+            if (!more) {
+                return null;
+            }
+        }
+        return db.rawQuery(select + " WHERE id > ? ORDER BY id LIMIT " + PAGE_SIZE,
+                new String[] {String.valueOf(previous == null ? Long.MIN_VALUE : lastId)});
+    }
+
+    private static void checkCount(String table, long count, long written) throws IOException {
+        if (written != count) {
+            throw new IOException(table + " changed while it was being written");
+        }
+    }
+
+    // Checks the whole file before touching the database, then replaces the three tables
+    // with its rows in one transaction and rebuilds daily_totals. Returns the number of rows read.
+    static long restore(SQLiteDatabase db, DBHandler handler, File file) throws IOException {
+        verify(file);
+        FileInputStream stream = new FileInputStream(file);
+        SQLiteStatement user = db.compileStatement("INSERT INTO " + DBHandler.TABLE_USER + "("
+                + DBHandler.USER_ID + ", " + DBHandler.USER_NAME + ", " + DBHandler.USER_AGE + ", "
+                + DBHandler.USER_GENDER + ") VALUES (?, ?, ?, ?)");
+        SQLiteStatement food = db.compileStatement("INSERT INTO " + DBHandler.TABLE_FOOD + "("
+                + DBHandler.FOOD_ID + ", " + DBHandler.FOOD_NAME + ", " + DBHandler.FOOD_CALORIE + ", "
+                + DBHandler.FOOD_QUANTITY + ", " + DBHandler.FOOD_DATE + ", " + DBHandler.FOOD_USER
+                + ") VALUES (?, ?, ?, ?, ?, ?)");
+        SQLiteStatement eat = db.compileStatement("INSERT INTO " + DBHandler.TABLE_EAT + "("
+                + DBHandler.EAT_ID + ", " + DBHandler.EAT_USER + ", " + DBHandler.EAT_FOOD + ") VALUES (?, ?, ?)");
+        long rows = 0;
+        db.beginTransaction();
+        try {
+            Input in = new Input(stream.getChannel());
+            if (in.getInt() != MAGIC) {
+                throw new IOException("Not a KalorieKounter snapshot");
+            }
+            long version = in.getVarint();
+            if (version > VERSION) {
+                throw new IOException("Snapshot version " + version + " is newer than this app");
+            }
+            db.delete(DBHandler.TABLE_EAT, null, null);
+            db.delete(DBHandler.TABLE_FOOD, null, null);
+            db.delete(DBHandler.TABLE_USER, null, null);
+
+            long count = in.getVarint();
+            long id = 0;
+            for (long i = 0; i < count; i++) {
+                user.clearBindings();
+                id += in.getSigned();
+                user.bindLong(1, id);
+                in.bindString(user, 2, in.getString());
+                in.bindNullable(user, 3);
+                in.bindString(user, 4, in.getString());
+                user.executeInsert();
+            }
+            rows += count;
+            // Users are in id order
+            long newestUser = id;
+
+            count = in.getVarint();
+            ArrayList<String> names = new ArrayList<>();
+            id = 0;
+            long day = 0;
+            for (long i = 0; i < count; i++) {
+                food.clearBindings();
+                id += in.getSigned();
+                food.bindLong(1, id);
+                long index = in.getVarint();
+                if (index == names.size() + 1) {
+                    names.add(in.getString());
+                } else if (index > names.size()) {
+                    throw new IOException("Bad name index " + index);
+                }
+                if (index != 0) {
+                    food.bindString(2, names.get((int) index - 1));
+                }
+                in.bindNullable(food, 3);
+                in.bindNullable(food, 4);
+                long date = in.getVarint();
+                if (date != 0) {
+                    day += unzigzag(date - 1);
+                    food.bindLong(5, day);
+                }
+                food.bindLong(6, version < 2 ? newestUser : in.getVarint());
+                food.executeInsert();
+            }
+            rows += count;
+
+            count = in.getVarint();
+            id = 0;
+            for (long i = 0; i < count; i++) {
+                eat.clearBindings();
+                id += in.getSigned();
+                eat.bindLong(1, id);
+                in.bindNullable(eat, 2);
+                in.bindNullable(eat, 3);
+                eat.executeInsert();
+            }
+            rows += count;
+
+            handler.rebuildDailyTotals(db);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            user.close();
+            food.close();
+            eat.close();
+            stream.close();
+        }
+        return rows;
+    }
+
+    private static void verify(File file) throws IOException {
+        long length = file.length();
+        if (length < 8) {
+            throw new IOException("Snapshot " + file + " is truncated");
+        }
+        FileInputStream stream = new FileInputStream(file);
+        try {
+            FileChannel channel = stream.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            CRC32 crc = new CRC32();
+            long remaining = length - 4;
+            while (remaining > 0) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), remaining));
+                int read = channel.read(buffer);
+                if (read < 0) {
+                    throw new EOFException();
+                }
+                crc.update(buffer.array(), 0, read);
+                remaining -= read;
+            }
+            buffer.clear();
+            buffer.limit(4);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException();
+                }
+            }
+            if (buffer.getInt(0) != (int) crc.getValue()) {
+                throw new IOException("Snapshot " + file + " is damaged");
+            }
+        } finally {
+            stream.close();
+        }
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class Output {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private final CRC32 crc = new CRC32();
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void putVarint(long value) throws IOException {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        void putSigned(long value) throws IOException {
+            putVarint(zigzag(value));
+        }
+
+        // 0 for NULL
+        void putNullable(Cursor cursor, int column) throws IOException {
+            putVarint(cursor.isNull(column) ? 0 : zigzag(cursor.getLong(column)) + 1);
+        }
+
+        // Length + 1, then the bytes; 0 for null
+        void putString(String value) throws IOException {
+            if (value == null) {
+                putVarint(0);
+            } else {
+                putBytes(value.getBytes(UTF_8));
+            }
+        }
+
+        void putBytes(byte[] bytes) throws IOException {
+            putVarint(bytes.length + 1);
+            int offset = 0;
+            while (offset < bytes.length) {
+                ensure(1);
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        void finish() throws IOException {
+            flush();
+            buffer.putInt((int) crc.getValue());
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            crc.update(buffer.array(), 0, buffer.position());
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    private static final class Input {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        Input(FileChannel channel) {
+            this.channel = channel;
+            buffer.flip();
+        }
+
+        int getInt() throws IOException {
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                value = (value << 8) | (get() & 0xFF);
+            }
+            return value;
+        }
+
+        long getVarint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = get();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Bad varint");
+        }
+
+        long getSigned() throws IOException {
+            return unzigzag(getVarint());
+        }
+
+        String getString() throws IOException {
+            long length = getVarint();
+            if (length == 0) {
+                return null;
+            }
+            if (length - 1 > MAX_STRING) {
+                throw new IOException("Bad string length " + (length - 1));
+            }
+            byte[] bytes = new byte[(int) length - 1];
+            int offset = 0;
+            while (offset < bytes.length) {
+                if (!buffer.hasRemaining()) {
+                    fill();
+                }
+                int chunk = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.get(bytes, offset, chunk);
+                offset += chunk;
+            }
+            return new String(bytes, UTF_8);
+        }
+
+        void bindNullable(SQLiteStatement statement, int index) throws IOException {
+            long value = getVarint();
+            if (value != 0) {
+                statement.bindLong(index, unzigzag(value - 1));
+            }
+        }
+
+        void bindString(SQLiteStatement statement, int index, String value) {
+            if (value != null) {
+                statement.bindString(index, value);
+            }
+        }
+
+        private byte get() throws IOException {
+            if (!buffer.hasRemaining()) {
+                fill();
+            }
+            return buffer.get();
+        }
+
+        private void fill() throws IOException {
+            buffer.clear();
+            int read;
+            do {
+                read = channel.read(buffer);
+            } while (read == 0);
+            buffer.flip();
+            if (read < 0) {
+                throw new EOFException("Snapshot ends early");
+            }
+        }
+    }
+}
@@ -11,6 +11,7 @@ public class Startactivity extends AppCompatActivity {
     DBArguments dbArguments;
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        long start = Metrics.begin();
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_startactivity);
 
@@ -24,6 +25,7 @@ public class Startactivity extends AppCompatActivity {
                 startActivity(fp);
             }
         });
+        Metrics.end(Metrics.SCREEN_START, start, 0);
     }
 
 
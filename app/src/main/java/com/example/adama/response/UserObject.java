@@ -8,7 +8,12 @@ public class UserObject {
     private String gender;
 
     UserObject(String name, int age, String gender){
+        this(0, name, age, gender);
+    }
+
+    UserObject(int id, String name, int age, String gender){
 
+        this.id = id;
         this.name = name;
         this.age = age;
         this.gender = gender;
@@ -5,13 +5,17 @@ import android.support.v7.app.AppCompatActivity;
 import android.widget.TextView;
 
 public class ViewDataActivity extends AppCompatActivity {
-DBArguments dbArguments;
+AsyncDBArguments data;
     TextView eatentoday;
     TextView improvement;
+    TextView trends;
     String date;
+    ObservableQuery<int[]> summary;
+    ObservableQuery<CalorieTotals> weekly;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        long start = Metrics.begin();
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_view_data);
         Bundle bundle = getIntent().getExtras();
@@ -22,19 +26,65 @@ DBArguments dbArguments;
         }
         eatentoday = (TextView) findViewById(R.id.eatentoday);
         improvement = (TextView) findViewById(R.id.improvement);
+        trends = (TextView) findViewById(R.id.trends);
 
-        final DBArguments data = new DBArguments(this);
+        data = new AsyncDBArguments(this);
 
-        int[] dater = data.callFoo(date);
+        // Both stay current while entries for their days are added or removed
+        final int day = FoodDate.toEpochDay(date);
+        summary = data.observable(AsyncDBArguments.TAG_SUMMARY, new AsyncDBArguments.Callback<int[]>() {
+            @Override
+            public void onResult(int[] dater) {
+                if (dater == null) {
+                    return;
+                }
+                eatentoday.setText(dater[0]+" "+"cal");
+                improvement.setText(dater[1] + " cal");
+            }
+        });
+        summary.observe(day, day, new AsyncDBArguments.Query<int[]>() {
+            @Override
+            public int[] run(DBArguments data) {
+                return data.callFoo(date);
+            }
+        });
 
-
-
-
-        eatentoday.setText(dater[0]+" "+"cal");
-        improvement.setText(dater[1] + " cal");
+        // Week by week for the four weeks up to this day
+        weekly = data.observable(AsyncDBArguments.TAG_TOTALS, new AsyncDBArguments.Callback<CalorieTotals>() {
+            @Override
+            public void onResult(CalorieTotals weeks) {
+                if (weeks == null) {
+                    return;
+                }
+                StringBuilder text = new StringBuilder();
+                for (int i = 0; i < weeks.size(); i++) {
+                    text.append("Week of ").append(FoodDate.fromEpochDay(weeks.getStartDay(i)))
+                            .append(": ").append(weeks.getTotal(i)).append(" cal\n");
+                }
+                trends.setText(text.toString().trim());
+            }
+        });
+        if (day != FoodDate.INVALID) {
+            final int from = CalorieTotals.bucketStart(day, CalorieTotals.WEEK) - 21;
+            weekly.observe(from, day, new AsyncDBArguments.Query<CalorieTotals>() {
+                @Override
+                public CalorieTotals run(DBArguments data) {
+                    return data.getTotals(from, day, CalorieTotals.WEEK);
+                }
+            });
+        }
 
         //eatentoday.setText(dbArguments.callFoo()+"");
 
 
+        Metrics.end(Metrics.SCREEN_VIEW_DATA, start, 0);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        summary.stop();
+        weekly.stop();
+        data.cancelAll();
     }
 }
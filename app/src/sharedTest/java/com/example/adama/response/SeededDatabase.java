@@ -0,0 +1,74 @@
+package com.example.adama.response;
+
+import android.content.Context;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.fail;
+
+/**
+ * Fills the app's own database with a profile and a number of food rows, ROWS_PER_DAY a day
+ * going back from today, so the screens under test see a long-running install.
+ * Shared by the Robolectric tests and the instrumentation benchmarks.
+ */
+final class SeededDatabase {
+
+    static final int ROWS_PER_DAY = 20;
+
+    private SeededDatabase() {
+    }
+
+    static void seed(Context context, int rows) {
+        DBArguments.closeInstance();
+        context.deleteDatabase(DBHandler.DATABASE_NAME);
+        DBArguments data = DBArguments.getInstance(context);
+        data.InsertUser(new UserObject("Bench", 30, "female"));
+
+        int today = FoodDate.today();
+        ArrayList<FoodObject> foods = new ArrayList<>(Math.min(rows, 10000));
+        for (int i = 0; i < rows; i++) {
+            foods.add(new FoodObject("Food " + i % 500, 50 + i % 400, 1 + i % 3,
+                    FoodDate.fromEpochDay(today - i / ROWS_PER_DAY)));
+            if (foods.size() == 10000) {
+                data.insertFoods(foods);
+                foods.clear();
+            }
+        }
+        data.insertFoods(foods);
+    }
+
+    // Rows shown for a day that is within the seeded range
+    static int rowsOnDay(int rows, int daysAgo) {
+        return Math.max(0, Math.min(ROWS_PER_DAY, rows - daysAgo * ROWS_PER_DAY));
+    }
+
+    // Polls condition until it holds. Getting onto the main thread, or running its queue,
+    // is up to the condition, since that differs between Robolectric and a device.
+    static void waitFor(Callable<Boolean> condition, long timeoutMs) {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        try {
+            while (!condition.call()) {
+                if (System.currentTimeMillis() > deadline) {
+                    fail("Timed out after " + timeoutMs + " ms");
+                }
+                Thread.sleep(1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    static long median(long[] values) {
+        return percentile(values, 50);
+    }
+
+    static long percentile(long[] values, int percent) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[Math.min(sorted.length - 1, sorted.length * percent / 100)];
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.adama.response;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CalorieTargetTest {
+
+    @Test
+    public void coversEveryAge() throws Exception {
+        // 9, 50 and 51 fell through the old if/else chain
+        assertEquals(1200, CalorieTarget.tableTarget(CalorieTarget.SEX_FEMALE, 8, CalorieTarget.ACTIVITY_SEDENTARY));
+        assertEquals(1600, CalorieTarget.tableTarget(CalorieTarget.SEX_FEMALE, 9, CalorieTarget.ACTIVITY_SEDENTARY));
+        assertEquals(1800, CalorieTarget.tableTarget(CalorieTarget.SEX_MALE, 9, CalorieTarget.ACTIVITY_SEDENTARY));
+        assertEquals(2200, CalorieTarget.tableTarget(CalorieTarget.SEX_MALE, 50, CalorieTarget.ACTIVITY_SEDENTARY));
+        assertEquals(1600, CalorieTarget.tableTarget(CalorieTarget.SEX_FEMALE, 51, CalorieTarget.ACTIVITY_SEDENTARY));
+        assertEquals(2000, CalorieTarget.tableTarget(CalorieTarget.SEX_MALE, 51, CalorieTarget.ACTIVITY_SEDENTARY));
+        assertEquals(2000, CalorieTarget.tableTarget(CalorieTarget.SEX_MALE, 500, CalorieTarget.ACTIVITY_SEDENTARY));
+        assertEquals(1200, CalorieTarget.tableTarget(CalorieTarget.SEX_FEMALE, -3, CalorieTarget.ACTIVITY_SEDENTARY));
+    }
+
+    @Test
+    public void matchesOldBranchesWhereTheyWereDefined() throws Exception {
+        for (int age = 0; age <= 100; age++) {
+            for (String gender : new String[] {"Female", "Male"}) {
+                int old = legacyTarget(gender, age);
+                if (old != 0) {
+                    assertEquals(gender + " " + age, old, new CalorieTarget().dailyTarget(gender, age));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void activityRaisesTarget() throws Exception {
+        int sedentary = CalorieTarget.tableTarget(CalorieTarget.SEX_FEMALE, 25, CalorieTarget.ACTIVITY_SEDENTARY);
+        int moderate = CalorieTarget.tableTarget(CalorieTarget.SEX_FEMALE, 25, CalorieTarget.ACTIVITY_MODERATE);
+        int active = CalorieTarget.tableTarget(CalorieTarget.SEX_FEMALE, 25, CalorieTarget.ACTIVITY_ACTIVE);
+        assertTrue(sedentary < moderate && moderate < active);
+    }
+
+    @Test
+    public void bmrTarget() throws Exception {
+        // 10 * 70 + 6.25 * 175 - 5 * 30 + 5 = 1648.75, times 1.2
+        assertEquals(1979, CalorieTarget.bmrTarget(CalorieTarget.SEX_MALE, 30, 70, 175, CalorieTarget.ACTIVITY_SEDENTARY));
+        // 10 * 60 + 6.25 * 165 - 5 * 30 - 161 = 1320.25, times 1.55
+        assertEquals(2046, CalorieTarget.bmrTarget(CalorieTarget.SEX_FEMALE, 30, 60, 165, CalorieTarget.ACTIVITY_MODERATE));
+    }
+
+    @Test
+    public void parsesTypedGender() throws Exception {
+        assertEquals(CalorieTarget.SEX_FEMALE, CalorieTarget.parseSex(" female"));
+        assertEquals(CalorieTarget.SEX_MALE, CalorieTarget.parseSex("M"));
+        assertEquals(CalorieTarget.SEX_UNKNOWN, CalorieTarget.parseSex("other"));
+        assertEquals(CalorieTarget.SEX_UNKNOWN, CalorieTarget.parseSex(null));
+        assertEquals(0, new CalorieTarget().dailyTarget("", 30));
+    }
+
+    @Test
+    public void cacheFollowsProfileChanges() throws Exception {
+        CalorieTarget target = new CalorieTarget();
+        assertEquals(2000, target.dailyTarget("Female", 25));
+        assertEquals(2000, target.dailyTarget("Female", 25));
+        assertEquals(2400, target.dailyTarget("Male", 25));
+        assertEquals(1800, target.dailyTarget("Male", 10));
+    }
+
+    // The chain DBHandler.foo used before, without the consumed-calories conditions
+    private static int legacyTarget(String gender, int age) {
+        if (age < 9 && gender.matches("Female")) {
+            return 1200;
+        } else if (age < 9 && gender.matches("Male")) {
+            return 1400;
+        } else if (age > 9 && age < 14 && gender.matches("Female")) {
+            return 1600;
+        } else if (age > 9 && age < 14 && gender.matches("Male")) {
+            return 1800;
+        } else if (age > 13 && age < 19 && gender.matches("Female")) {
+            return 1800;
+        } else if (age > 13 && age < 19 && gender.matches("Male")) {
+            return 2200;
+        } else if (age > 18 && age < 31 && gender.matches("Female")) {
+            return 2000;
+        } else if (age > 18 && age < 31 && gender.matches("Male")) {
+            return 2400;
+        } else if (age > 30 && age < 51 && gender.matches("Female")) {
+            return 1800;
+        } else if (age > 30 && age < 50 && gender.matches("Male")) {
+            return 2200;
+        } else if (age > 51 && gender.matches("Female")) {
+            return 1600;
+        } else if (age > 51 && gender.matches("Male")) {
+            return 2000;
+        }
+        return 0;
+    }
+}
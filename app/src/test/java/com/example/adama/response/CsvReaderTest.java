@@ -0,0 +1,80 @@
+package com.example.adama.response;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+public class CsvReaderTest {
+
+    @Test
+    public void readsQuotedFields() throws Exception {
+        CsvReader csv = new CsvReader(new StringReader("food,\"Fish, chips\",\"say \"\"hi\"\"\",\"two\nlines\"\r\nnext\n"));
+        assertTrue(csv.next());
+        assertEquals(4, csv.size());
+        assertTrue(csv.equals(0, "food"));
+        assertEquals("Fish, chips", csv.getString(1));
+        assertEquals("say \"hi\"", csv.getString(2));
+        assertEquals("two\nlines", csv.getString(3));
+        assertTrue(csv.next());
+        assertEquals("next", csv.getString(0));
+        assertFalse(csv.next());
+    }
+
+    @Test
+    public void keepsNullApartFromEmpty() throws Exception {
+        StringWriter out = new StringWriter();
+        new CsvWriter(out).field((String) null).field("").field(-42).endRow();
+        assertEquals(",\"\",-42\n", out.toString());
+
+        CsvReader csv = new CsvReader(new StringReader(out.toString()));
+        assertTrue(csv.next());
+        assertTrue(csv.isNull(0));
+        assertNull(csv.getString(0));
+        assertFalse(csv.isNull(1));
+        assertEquals("", csv.getString(1));
+        assertEquals(-42, csv.getInt(2));
+        assertTrue(csv.isNull(3));
+    }
+
+    @Test
+    public void roundTripsAwkwardStrings() throws Exception {
+        String[] values = {"plain", "comma,", "quote\"", "\"leading", "cr\rlf\n", " spaced ", "æøå"};
+        StringWriter out = new StringWriter();
+        CsvWriter writer = new CsvWriter(out);
+        for (String value : values) {
+            writer.field(value);
+        }
+        writer.endRow();
+
+        CsvReader csv = new CsvReader(new StringReader(out.toString()));
+        assertTrue(csv.next());
+        assertEquals(values.length, csv.size());
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(values[i], csv.getString(i));
+        }
+        assertFalse(csv.next());
+    }
+
+    @Test
+    public void reportsTheRowOfABadNumber() throws Exception {
+        CsvReader csv = new CsvReader(new StringReader("1\n2x\n"));
+        assertTrue(csv.next());
+        assertEquals(1, csv.getInt(0));
+        assertTrue(csv.next());
+        try {
+            csv.getInt(0);
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("row 2"));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsAnUnterminatedQuote() throws Exception {
+        new CsvReader(new StringReader("\"open\n")).next();
+    }
+}
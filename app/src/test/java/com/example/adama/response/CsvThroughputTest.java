@@ -0,0 +1,78 @@
+package com.example.adama.response;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+
+import static org.junit.Assert.*;
+
+// A million food rows through a file and back, with the same buffers exportLog and
+// importLog use, each way held to MIN_ROWS_PER_SECOND; the checksum makes sure nothing
+// was lost.
+public class CsvThroughputTest {
+
+    private static final int ROWS = 1000000;
+    // Loose for a host JVM, which does several times this; an unbuffered writer or a
+    // per-row allocation blowup falls well below it
+    private static final long MIN_ROWS_PER_SECOND = 200000;
+
+    @Test
+    public void millionRowRoundTrip() throws Exception {
+        File file = File.createTempFile("log", ".csv");
+        file.deleteOnExit();
+        try {
+            long expected = 0;
+            long start = System.nanoTime();
+            Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"), 1 << 16);
+            try {
+                CsvWriter csv = new CsvWriter(out);
+                for (int i = 0; i < ROWS; i++) {
+                    int calorie = i % 900;
+                    int quantity = 1 + i % 4;
+                    int day = 17000 + i / 10;
+                    csv.field("food").field(i).field(i % 7 == 0 ? "Fish, chips" : "Apple")
+                            .field(calorie).field(quantity).field(FoodDate.fromEpochDay(day)).endRow();
+                    expected += i + calorie * quantity + day;
+                }
+            } finally {
+                out.close();
+            }
+            long written = System.nanoTime() - start;
+
+            long actual = 0;
+            int rows = 0;
+            start = System.nanoTime();
+            Reader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"), 1 << 16);
+            try {
+                CsvReader csv = new CsvReader(in);
+                while (csv.next()) {
+                    actual += csv.getLong(1) + csv.getInt(3) * csv.getInt(4) + FoodDate.toEpochDay(csv.getString(5));
+                    rows++;
+                }
+            } finally {
+                in.close();
+            }
+            long read = System.nanoTime() - start;
+
+            assertEquals(ROWS, rows);
+            assertEquals(expected, actual);
+            assertRate("write", written);
+            assertRate("read", read);
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static void assertRate(String what, long nanos) {
+        long rowsPerSecond = ROWS * 1000000000L / nanos;
+        assertTrue(what + " ran at " + rowsPerSecond + " rows/s", rowsPerSecond >= MIN_ROWS_PER_SECOND);
+    }
+}
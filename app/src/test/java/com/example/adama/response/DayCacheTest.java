@@ -0,0 +1,111 @@
+package com.example.adama.response;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DayCacheTest {
+
+    private static final int USER = 1;
+
+    @Before
+    public void setUp() throws Exception {
+        Metrics.reset();
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedDay() throws Exception {
+        DayCache cache = new DayCache(2);
+        put(cache, 100, "Apple");
+        put(cache, 101, "Pear");
+        assertNotNull(cache.get(USER, 100));
+        put(cache, 102, "Plum");
+
+        assertNull(cache.get(USER, 101));
+        assertEquals("Apple", cache.get(USER, 100).name(0));
+        assertEquals("Plum", cache.get(USER, 102).name(0));
+        assertArrayEquals(new long[] {3, 1, 1}, Metrics.dayCacheCounts());
+    }
+
+    @Test
+    public void dropsWhatAWriteMadeStale() throws Exception {
+        DayCache cache = new DayCache(4);
+        put(cache, 100, "Apple");
+        int version = cache.version();
+        cache.invalidate(100);
+        assertNull(cache.get(USER, 100));
+
+        // Read before the write committed, so it must not be kept
+        DayCache.Day late = cache.put(USER, 100, version, new int[] {1}, new int[] {52}, new int[] {1},
+                new String[] {"Apple"});
+        assertEquals("Apple", late.name(0));
+        assertNull(cache.get(USER, 100));
+    }
+
+    @Test
+    public void keepsOneProfileAtATime() throws Exception {
+        DayCache cache = new DayCache(4);
+        put(cache, 100, "Apple");
+        assertNull(cache.get(USER + 1, 100));
+        cache.put(USER + 1, 100, cache.version(), new int[] {2}, new int[] {57}, new int[] {1}, new String[] {"Pear"});
+        assertNull(cache.get(USER, 100));
+        assertEquals("Pear", cache.get(USER + 1, 100).name(0));
+    }
+
+    @Test
+    public void sharesNamesAcrossDays() throws Exception {
+        DayCache cache = new DayCache(4);
+        DayCache.Day first = cache.put(USER, 100, cache.version(), new int[] {1, 2}, new int[] {52, 0},
+                new int[] {1, 1}, new String[] {"Apple", null});
+        DayCache.Day second = cache.put(USER, 101, cache.version(), new int[] {3}, new int[] {52}, new int[] {2},
+                new String[] {new String("Apple")});
+        assertEquals(first.nameIds[0], second.nameIds[0]);
+        assertSame(first.name(0), second.name(0));
+        assertNull(first.name(1));
+    }
+
+    // Random gets, puts and invalidations against a LinkedHashMap in access order,
+    // with many more days than slots so probe runs keep being shifted
+    @Test
+    public void behavesLikeAnAccessOrderedMap() throws Exception {
+        final int capacity = 8;
+        DayCache cache = new DayCache(capacity);
+        LinkedHashMap<Integer, Integer> model = new LinkedHashMap<>(16, 0.75f, true);
+        Random random = new Random(42);
+        for (int step = 0; step < 100000; step++) {
+            int day = random.nextInt(40) * 64;
+            int action = random.nextInt(10);
+            if (action < 5) {
+                DayCache.Day cached = cache.get(USER, day);
+                Integer expected = model.get(day);
+                if (expected == null) {
+                    assertNull(cached);
+                } else {
+                    assertEquals(expected.intValue(), cached.calories[0]);
+                }
+            } else if (action < 9) {
+                cache.put(USER, day, cache.version(), new int[] {step}, new int[] {step}, new int[] {1},
+                        new String[] {"Food " + day});
+                model.put(day, step);
+                if (model.size() > capacity) {
+                    Iterator<Integer> eldest = model.keySet().iterator();
+                    eldest.next();
+                    eldest.remove();
+                }
+            } else {
+                cache.invalidate(day);
+                model.remove(day);
+            }
+            assertEquals(model.size(), cache.size());
+        }
+    }
+
+    private static void put(DayCache cache, int day, String name) {
+        cache.put(USER, day, cache.version(), new int[] {day}, new int[] {52}, new int[] {1}, new String[] {name});
+    }
+}
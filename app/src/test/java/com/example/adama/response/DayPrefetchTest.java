@@ -0,0 +1,97 @@
+package com.example.adama.response;
+
+import android.database.Cursor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class DayPrefetchTest {
+
+    private static final String DATABASE = "prefetch-test";
+
+    private DBArguments data;
+    private int first;
+    private int last;
+
+    @Before
+    public void setUp() throws Exception {
+        RuntimeEnvironment.application.deleteDatabase(DATABASE);
+        data = new DBArguments(RuntimeEnvironment.application, DATABASE);
+        data.InsertUser(new UserObject("Åse", 41, "Female"));
+        first = FoodDate.toEpochDay(2017, 3, 1);
+        last = FoodDate.toEpochDay(2017, 3, 31);
+        ArrayList<FoodObject> foods = new ArrayList<>();
+        // Every other day, day-of-month entries of 100 calories
+        for (int day = first; day <= last; day += 2) {
+            for (int i = 0; i <= day - first; i++) {
+                foods.add(new FoodObject("Food " + i % 7, 100, 1, FoodDate.fromEpochDay(day)));
+            }
+        }
+        data.insertFoods(foods);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        data.close();
+    }
+
+    @Test
+    public void prefetchedDaysAreServedFromMemory() throws Exception {
+        assertEquals(31, data.prefetchDays(first, last));
+        // Already there
+        assertEquals(0, data.prefetchDays(first, first + 3));
+
+        Metrics.reset();
+        for (int day = first; day <= last; day++) {
+            int expected = (day - first) % 2 == 0 ? day - first + 1 : 0;
+            String date = FoodDate.fromEpochDay(day);
+            assertEquals(expected, data.getallfoods(date).size());
+            Cursor cursor = data.getFoodsCursor(date);
+            assertEquals(expected, cursor.getCount());
+            cursor.close();
+            assertEquals(expected * 100, data.callFoo(date)[0]);
+        }
+        assertEquals(0, Metrics.dayCacheCounts()[1]);
+    }
+
+    // Both read paths treat an unparseable date as an empty day, without touching the cache
+    @Test
+    public void unparseableDateIsAnEmptyDay() throws Exception {
+        Metrics.reset();
+        assertEquals(0, data.getallfoods("someday").size());
+        Cursor cursor = data.getFoodsCursor("someday");
+        assertEquals(0, cursor.getCount());
+        assertEquals(DBHandler.FOOD_QUANTITY, cursor.getColumnName(3));
+        cursor.close();
+        assertEquals(0, Metrics.dayCacheCounts()[0] + Metrics.dayCacheCounts()[1]);
+    }
+
+    @Test
+    public void writesReplaceWhatWasPrefetched() throws Exception {
+        data.prefetchDays(first, last);
+        String date = FoodDate.fromEpochDay(first + 1);
+        data.InsertFoodTest(new FoodObject("Apple", 52, 2, date));
+
+        assertEquals(1, data.getallfoods(date).size());
+        assertEquals(104, data.callFoo(date)[0]);
+    }
+
+    @Test
+    public void switchingProfilesDropsTheOtherProfilesDays() throws Exception {
+        data.prefetchDays(first, last);
+        data.InsertUser(new UserObject("Bo", 30, "Male"));
+        assertEquals(0, data.getallfoods(FoodDate.fromEpochDay(first)).size());
+        assertEquals(0, data.callFoo(FoodDate.fromEpochDay(first))[0]);
+    }
+}
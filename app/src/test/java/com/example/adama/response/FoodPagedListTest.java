@@ -0,0 +1,153 @@
+package com.example.adama.response;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class FoodPagedListTest {
+
+    private static final String DATABASE = "paged-test";
+    private static final int DAYS = 5;
+    private static final int PER_DAY = 40;
+    private static final long TIMEOUT_MS = 10000;
+
+    private DBArguments data;
+    private AsyncDBArguments async;
+    private int first;
+
+    @Before
+    public void setUp() throws Exception {
+        RuntimeEnvironment.application.deleteDatabase(DATABASE);
+        data = new DBArguments(RuntimeEnvironment.application, DATABASE);
+        async = new AsyncDBArguments(data);
+        data.InsertUser(new UserObject("Åse", 41, "Female"));
+        first = FoodDate.toEpochDay(2017, 3, 1);
+        // Newest day first, so id order and date order disagree
+        ArrayList<FoodObject> foods = new ArrayList<>();
+        for (int day = first + DAYS - 1; day >= first; day--) {
+            for (int i = 0; i < PER_DAY; i++) {
+                foods.add(new FoodObject("Food " + i, 100, 1, FoodDate.fromEpochDay(day)));
+            }
+        }
+        data.insertFoods(foods);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        async.cancelAll();
+        data.close();
+    }
+
+    @Test
+    public void historyPagesThroughEveryDayInOrder() throws Exception {
+        FoodPagedList list = FoodPagedList.forHistory(async);
+        list.setListener(new Recorder());
+        int previousDay = Integer.MIN_VALUE;
+        int previousId = 0;
+        for (int position = 0; position < DAYS * PER_DAY; position++) {
+            FoodObject food = load(list, position);
+            int day = FoodDate.toEpochDay(food.getTime());
+            assertTrue(day > previousDay || (day == previousDay && food.getFood_id() > previousId));
+            assertEquals(food.getFood_id(), list.getId(position));
+            previousDay = day;
+            previousId = food.getFood_id();
+        }
+        assertEquals(first, FoodDate.toEpochDay(load(list, 0).getTime()));
+        assertEquals(DAYS * PER_DAY, list.size());
+    }
+
+    @Test
+    public void dayListHoldsOnlyThatDay() throws Exception {
+        String date = FoodDate.fromEpochDay(first + 2);
+        FoodPagedList list = FoodPagedList.forDay(async, date);
+        list.setListener(new Recorder());
+        for (int position = 0; position < PER_DAY; position++) {
+            assertEquals(date, load(list, position).getTime());
+        }
+        assertEquals(PER_DAY, list.size());
+    }
+
+    // An unparseable date is an empty day, not the whole history
+    @Test
+    public void invalidDateIsEmpty() throws Exception {
+        FoodPagedList list = FoodPagedList.forDay(async, "someday");
+        Recorder recorder = new Recorder();
+        list.setListener(recorder);
+        // Nothing to wait for, so give the query time to come back
+        long until = System.currentTimeMillis() + 200;
+        while (System.currentTimeMillis() < until) {
+            flush();
+        }
+        assertEquals(0, list.size());
+        assertEquals(0, recorder.inserted);
+    }
+
+    @Test
+    public void droppedPagesAreLoadedAgain() throws Exception {
+        FoodPagedList list = FoodPagedList.forHistory(async);
+        Recorder recorder = new Recorder();
+        list.setListener(recorder);
+        long id = load(list, 0).getFood_id();
+        int far = (FoodPagedList.KEEP_PAGES + 1) * FoodPagedList.PAGE_SIZE;
+        load(list, far);
+        assertNull(list.get(0));
+        assertEquals(id, load(list, 0).getFood_id());
+        assertTrue(recorder.loaded > 0);
+    }
+
+    private static class Recorder implements FoodPagedList.Listener {
+        int inserted;
+        int loaded;
+
+        @Override
+        public void onRowsInserted(int start, int count) {
+            inserted += count;
+        }
+
+        @Override
+        public void onRowsLoaded(int start, int count) {
+            loaded += count;
+        }
+    }
+
+    // Walks the list up to position the way a scrolling RecyclerView would, then returns its row
+    private static FoodObject load(FoodPagedList list, int position) {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (true) {
+            if (position < list.size()) {
+                FoodObject food = list.get(position);
+                if (food != null) {
+                    return food;
+                }
+            } else if (list.size() > 0) {
+                list.get(list.size() - 1);
+            }
+            if (System.currentTimeMillis() > deadline) {
+                fail("Timed out loading row " + position);
+            }
+            flush();
+        }
+    }
+
+    // Results come back from the DBExecutor threads as posts to the main looper, which
+    // Robolectric only runs when asked
+    private static void flush() {
+        try {
+            Thread.sleep(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Robolectric.flushForegroundThreadScheduler();
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.adama.response;
+
+import android.database.Cursor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class FoodWriteQueueTest {
+
+    private static final String DATABASE = "queue-test";
+
+    private DBArguments data;
+    private String date;
+    private final List<Integer> changed = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        RuntimeEnvironment.application.deleteDatabase(DATABASE);
+        data = new DBArguments(RuntimeEnvironment.application, DATABASE);
+        data.InsertUser(new UserObject("Åse", 41, "Female"));
+        date = FoodDate.fromEpochDay(FoodDate.today());
+        data.addChangeListener(new DBArguments.ChangeListener() {
+            @Override
+            public void onChanged(int day) {
+                changed.add(day);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        data.close();
+    }
+
+    // The day is reported as soon as the entry is queued, and a re-query then lists it
+    // once, under its queued id until the drain and its row id after
+    @Test
+    public void queuedFoodIsListedOnceBeforeAndAfterTheDrain() throws Exception {
+        changed.clear();
+        int queuedId = data.queueFood(new FoodObject("Apple", 52, 2, date));
+        assertTrue(queuedId < 0);
+        assertTrue(changed.contains(FoodDate.today()));
+        assertEquals(queuedId, onlyId());
+
+        data.flushQueue();
+        int storedId = onlyId();
+        assertTrue(storedId > 0);
+        assertEquals(104, data.callFoo(date)[0]);
+    }
+
+    private int onlyId() {
+        Cursor cursor = data.getFoodsCursor(date);
+        try {
+            ArrayList<Integer> ids = new ArrayList<>();
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getInt(cursor.getColumnIndexOrThrow(DBHandler.FOOD_ID)));
+            }
+            assertEquals(1, ids.size());
+            return ids.get(0);
+        } finally {
+            cursor.close();
+        }
+    }
+}
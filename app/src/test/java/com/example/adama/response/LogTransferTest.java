@@ -0,0 +1,81 @@
+package com.example.adama.response;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class LogTransferTest {
+
+    private static final String DATABASE = "transfer-test";
+
+    private DBArguments data;
+    private File file;
+    private String today;
+
+    @Before
+    public void setUp() throws Exception {
+        RuntimeEnvironment.application.deleteDatabase(DATABASE);
+        data = new DBArguments(RuntimeEnvironment.application, DATABASE);
+        file = new File(RuntimeEnvironment.application.getFilesDir(), "test.csv");
+        today = FoodDate.fromEpochDay(FoodDate.today());
+        data.InsertUser(new UserObject("Åse", 41, "Female"));
+        data.InsertFoodTest(new FoodObject("Apple", 52, 2, today));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        data.close();
+        file.delete();
+    }
+
+    @Test
+    public void roundTripsTheLog() throws Exception {
+        assertEquals(2, data.exportLog(file));
+        data.InsertFoodTest(new FoodObject("Pear", 57, 1, today));
+        assertEquals(2, data.importLog(file));
+        assertEquals(1, data.getallfoods(today).size());
+        assertEquals(104, data.callFoo(today)[0]);
+    }
+
+    // Far enough in that the rows before the bad one would have been committed in batches
+    @Test
+    public void aFileThatFailsPartWayChangesNothing() throws Exception {
+        Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            CsvWriter csv = new CsvWriter(out);
+            csv.field("kaloriekounter").field(2).endRow();
+            csv.field("user").field(7).field("Bo").field(30).field("Male").endRow();
+            for (int i = 1; i <= 20000; i++) {
+                csv.field("food").field(i).field("Bread").field(80).field(1).field(today).field(7).endRow();
+            }
+            csv.field("food").field(20001).field("Bread").field(80).field(1).field("yesterday").field(7).endRow();
+        } finally {
+            out.close();
+        }
+
+        try {
+            data.importLog(file);
+            fail();
+        } catch (IOException expected) {
+        }
+        assertEquals("Åse", data.getUser().getName());
+        assertEquals(1, data.getallfoods(today).size());
+        assertEquals(104, data.callFoo(today)[0]);
+        // And what was there before the attempt is in the safety snapshot
+        assertTrue(data.getSafetySnapshot().exists());
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.adama.response;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+/**
+ * Upgrades databases written by version 1 of the app, with the schema and dd/MM/yyyy dates
+ * it used, to the current version. The seeded one is sized like years of heavy use.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class MigrationTest {
+
+    private static final String DATABASE = "migration-test";
+    private static final int ROWS = 100000;
+    private static final int ROWS_PER_DAY = 20;
+    // Generous for a host JVM; a device upgrade of this size takes a few seconds
+    private static final long BUDGET_MS = 15000;
+    private static final long INDEX_TIMEOUT_MS = 30000;
+
+    private DBArguments data;
+
+    @Before
+    public void setUp() throws Exception {
+        RuntimeEnvironment.application.deleteDatabase(DATABASE);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (data != null) {
+            data.close();
+        }
+    }
+
+    @Test
+    public void stepsCoverEveryVersion() throws Exception {
+        assertEquals(DBHandler.DATABASE_VERSION - 1, DBHandler.MIGRATIONS.length);
+        for (int i = 0; i < DBHandler.MIGRATIONS.length; i++) {
+            assertEquals(i + 2, DBHandler.MIGRATIONS[i].version);
+        }
+    }
+
+    @Test
+    public void upgradesALargeVersionOneDatabase() throws Exception {
+        int firstDay = FoodDate.toEpochDay(2015, 3, 1);
+        long firstDayCalories = seedVersionOne(firstDay);
+
+        long start = System.nanoTime();
+        data = new DBArguments(RuntimeEnvironment.application, DATABASE);
+        UserObject user = data.getUser();
+        long elapsedMs = (System.nanoTime() - start) / 1000000;
+        assertTrue("Took " + elapsedMs + " ms", elapsedMs < BUDGET_MS);
+
+        // Entries from before there were profiles belong to the newest one
+        assertEquals("Second", user.getName());
+        String date = FoodDate.fromEpochDay(firstDay);
+        assertEquals(ROWS_PER_DAY, data.getallfoods(date).size());
+        assertEquals(firstDayCalories, data.callFoo(date)[0]);
+        assertEquals(ROWS_PER_DAY, data.getFoodPage(firstDay, 0, 100).size());
+        // The unparseable date is kept, just not on any day
+        assertEquals(ROWS + 1, count("SELECT COUNT(*) FROM foodTable"));
+
+        // The other profile starts empty
+        data.setCurrentUser(1);
+        assertEquals(0, data.getallfoods(date).size());
+        assertEquals(0, data.callFoo(date)[0]);
+
+        awaitIndex(DBHandler.INDEX_FOOD_USER_DATE);
+        assertEquals(0, count("SELECT COUNT(*) FROM sqlite_master WHERE name = 'foodTable_date'"));
+    }
+
+    @Test
+    public void freshAndUpgradedSchemasMatch() throws Exception {
+        seedVersionOne(FoodDate.toEpochDay(2015, 3, 1));
+        data = new DBArguments(RuntimeEnvironment.application, DATABASE);
+        data.getUser();
+        awaitIndex(DBHandler.INDEX_FOOD_USER_DATE);
+        String upgraded = schema();
+        data.close();
+
+        RuntimeEnvironment.application.deleteDatabase(DATABASE);
+        data = new DBArguments(RuntimeEnvironment.application, DATABASE);
+        data.getUser();
+        assertEquals(schema(), upgraded);
+    }
+
+    // Version 1's tables, two profiles and ROWS entries at ROWS_PER_DAY a day from firstDay,
+    // plus one with a date version 1 let through. Returns the first day's calories.
+    private static long seedVersionOne(int firstDay) {
+        File path = RuntimeEnvironment.application.getDatabasePath(DATABASE);
+        path.getParentFile().mkdirs();
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(path, null);
+        long firstDayCalories = 0;
+        try {
+            db.execSQL("CREATE TABLE userTable(id INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, name TEXT,"
+                    + "age INTEGER,gender TEXT )");
+            db.execSQL("CREATE TABLE foodTable(id INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, name TEXT,"
+                    + "calorie INTEGER, quantity INTEGER, date TEXT )");
+            db.execSQL("CREATE TABLE eatTable(id INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, user_id INTEGER, "
+                    + "food_id INTEGER,  FOREIGN KEY (user_id) REFERENCES  userTable(id),"
+                    + " FOREIGN KEY (food_id) REFERENCES  foodTable(id));");
+            db.execSQL("INSERT INTO userTable(name, age, gender) VALUES ('First', 30, 'Female')");
+            db.execSQL("INSERT INTO userTable(name, age, gender) VALUES ('Second', 40, 'Male')");
+
+            SQLiteStatement insert = db.compileStatement(
+                    "INSERT INTO foodTable(name, calorie, quantity, date) VALUES (?, ?, ?, ?)");
+            db.beginTransaction();
+            try {
+                for (int i = 0; i < ROWS; i++) {
+                    int calorie = 50 + i % 400;
+                    int quantity = 1 + i % 3;
+                    insert.bindString(1, "Food " + i % 500);
+                    insert.bindLong(2, calorie);
+                    insert.bindLong(3, quantity);
+                    insert.bindString(4, FoodDate.fromEpochDay(firstDay + i / ROWS_PER_DAY));
+                    insert.executeInsert();
+                    if (i < ROWS_PER_DAY) {
+                        firstDayCalories += calorie * quantity;
+                    }
+                }
+                insert.bindString(1, "Undated");
+                insert.bindLong(2, 100);
+                insert.bindLong(3, 1);
+                insert.bindString(4, "sometime");
+                insert.executeInsert();
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+                insert.close();
+            }
+            db.setVersion(1);
+        } finally {
+            db.close();
+        }
+        return firstDayCalories;
+    }
+
+    private static long count(String sql) {
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(
+                RuntimeEnvironment.application.getDatabasePath(DATABASE).getPath(), null, SQLiteDatabase.OPEN_READONLY);
+        try {
+            Cursor cursor = db.rawQuery(sql, null);
+            try {
+                cursor.moveToFirst();
+                return cursor.getLong(0);
+            } finally {
+                cursor.close();
+            }
+        } finally {
+            db.close();
+        }
+    }
+
+    // Built on a DBExecutor thread after the upgrade
+    private static void awaitIndex(String name) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + INDEX_TIMEOUT_MS;
+        while (count("SELECT COUNT(*) FROM sqlite_master WHERE type = 'index' AND name = '" + name + "'") == 0) {
+            if (System.currentTimeMillis() > deadline) {
+                fail(name + " not built after " + INDEX_TIMEOUT_MS + " ms");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    // Tables and indexes with their columns, in a stable order. Column order can differ
+    // (ALTER TABLE appends), so columns are compared as sorted sets.
+    private static String schema() {
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(
+                RuntimeEnvironment.application.getDatabasePath(DATABASE).getPath(), null, SQLiteDatabase.OPEN_READONLY);
+        StringBuilder builder = new StringBuilder();
+        try {
+            Cursor tables = db.rawQuery("SELECT type, name, tbl_name FROM sqlite_master"
+                    + " WHERE name NOT LIKE 'sqlite_%' AND name != 'android_metadata' ORDER BY type, name", null);
+            try {
+                while (tables.moveToNext()) {
+                    builder.append(tables.getString(0)).append(' ').append(tables.getString(1)).append(':');
+                    String pragma = tables.getString(0).equals("index") ? "index_info" : "table_info";
+                    Cursor columns = db.rawQuery("PRAGMA " + pragma + "(" + tables.getString(1) + ")", null);
+                    try {
+                        java.util.TreeSet<String> names = new java.util.TreeSet<>();
+                        int name = columns.getColumnIndex("name");
+                        while (columns.moveToNext()) {
+                            names.add(columns.getString(name));
+                        }
+                        builder.append(names).append('\n');
+                    } finally {
+                        columns.close();
+                    }
+                }
+            } finally {
+                tables.close();
+            }
+        } finally {
+            db.close();
+        }
+        return builder.toString();
+    }
+}
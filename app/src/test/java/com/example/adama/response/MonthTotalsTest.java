@@ -0,0 +1,36 @@
+package com.example.adama.response;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MonthTotalsTest {
+
+    @Test
+    public void findsTheMonthAroundADay() throws Exception {
+        int leapDay = FoodDate.toEpochDay(2016, 2, 29);
+        assertEquals(FoodDate.toEpochDay(2016, 2, 1), MonthTotals.monthStart(leapDay));
+        assertEquals(leapDay, MonthTotals.monthEnd(FoodDate.toEpochDay(2016, 2, 1)));
+        assertEquals(FoodDate.toEpochDay(2017, 12, 31), MonthTotals.monthEnd(FoodDate.toEpochDay(2017, 12, 15)));
+        assertEquals(FoodDate.toEpochDay(2017, 4, 30), MonthTotals.monthEnd(FoodDate.toEpochDay(2017, 4, 30)));
+    }
+
+    @Test
+    public void comparesEachDayWithTheTarget() throws Exception {
+        int[] calories = new int[MonthTotals.MAX_DAYS];
+        calories[0] = 1000;
+        calories[1] = 1800;
+        calories[2] = 2000;
+        calories[3] = 2001;
+        MonthTotals month = new MonthTotals(FoodDate.toEpochDay(2017, 4, 1), 30, calories, 2000);
+        assertEquals(MonthTotals.UNDER, month.getLevel(1));
+        assertEquals(MonthTotals.NEAR, month.getLevel(2));
+        assertEquals(MonthTotals.NEAR, month.getLevel(3));
+        assertEquals(MonthTotals.OVER, month.getLevel(4));
+        assertEquals(MonthTotals.EMPTY, month.getLevel(5));
+
+        MonthTotals noTarget = new MonthTotals(month.getFirstDay(), 30, calories, 0);
+        assertEquals(MonthTotals.LOGGED, noTarget.getLevel(4));
+        assertEquals(MonthTotals.EMPTY, noTarget.getLevel(30));
+    }
+}
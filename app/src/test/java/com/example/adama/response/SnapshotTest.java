@@ -0,0 +1,130 @@
+package com.example.adama.response;
+
+import android.database.Cursor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class SnapshotTest {
+
+    private static final String DATABASE = "snapshot-test";
+    // Ten years at ten entries a day
+    private static final int ROWS = 36500;
+    // Each of backup and restore; the aim on a device is under a second, this leaves room
+    // for Robolectric's SQLite
+    private static final long BUDGET_MS = 2000;
+
+    private DBArguments data;
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        RuntimeEnvironment.application.deleteDatabase(DATABASE);
+        data = new DBArguments(RuntimeEnvironment.application, DATABASE);
+        file = new File(RuntimeEnvironment.application.getFilesDir(), "test.snapshot");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        data.close();
+        file.delete();
+    }
+
+    @Test
+    public void restoresWhatWasBackedUp() throws Exception {
+        data.InsertUser(new UserObject("Åse", 41, "Female"));
+        data.InsertUser(new UserObject(null, 0, null));
+        int firstDay = FoodDate.today() - ROWS / 10;
+        ArrayList<FoodObject> foods = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            String name = i % 50 == 0 ? null : "Food, \"" + i % 300 + "\"";
+            foods.add(new FoodObject(name, i % 900, 1 + i % 3, i % 997 == 0 ? null : FoodDate.fromEpochDay(firstDay + i / 10)));
+        }
+        data.insertFoods(foods);
+        data.deleteFood(5);
+        String before = dump();
+
+        long start = System.nanoTime();
+        assertEquals(ROWS - 1 + 2, data.backup(file));
+        long backupMs = (System.nanoTime() - start) / 1000000;
+        assertTrue("Backup took " + backupMs + " ms", backupMs < BUDGET_MS);
+
+        data.DeleteDatabase();
+        assertEquals(0, data.getallfoods(FoodDate.fromEpochDay(firstDay)).size());
+
+        start = System.nanoTime();
+        assertEquals(ROWS - 1 + 2, data.restore(file));
+        long restoreMs = (System.nanoTime() - start) / 1000000;
+        assertTrue("Restore took " + restoreMs + " ms", restoreMs < BUDGET_MS);
+
+        assertEquals(before, dump());
+        assertEquals(10, data.getallfoods(FoodDate.fromEpochDay(firstDay + 1)).size());
+    }
+
+    @Test
+    public void deleteDatabaseKeepsASnapshot() throws Exception {
+        data.InsertFoodTest(new FoodObject("Apple", 52, 2, FoodDate.fromEpochDay(FoodDate.today())));
+        data.DeleteDatabase();
+        assertEquals(1, data.restore(data.getSafetySnapshot()));
+        assertEquals(104, data.callFoo(FoodDate.fromEpochDay(FoodDate.today()))[0]);
+    }
+
+    @Test
+    public void rejectsADamagedFileWithoutChangingAnything() throws Exception {
+        data.InsertFoodTest(new FoodObject("Apple", 52, 1, FoodDate.fromEpochDay(FoodDate.today())));
+        data.backup(file);
+        data.InsertFoodTest(new FoodObject("Pear", 57, 1, FoodDate.fromEpochDay(FoodDate.today())));
+        String before = dump();
+
+        RandomAccessFile damaged = new RandomAccessFile(file, "rw");
+        try {
+            damaged.seek(file.length() / 2);
+            int b = damaged.read();
+            damaged.seek(file.length() / 2);
+            damaged.write(b ^ 0x10);
+        } finally {
+            damaged.close();
+        }
+        try {
+            data.restore(file);
+            fail();
+        } catch (IOException expected) {
+        }
+        assertEquals(before, dump());
+    }
+
+    private String dump() {
+        StringBuilder builder = new StringBuilder();
+        append(builder, data.selectUser());
+        append(builder, data.selectFood_Test());
+        append(builder, data.selectEat());
+        return builder.toString();
+    }
+
+    private static void append(StringBuilder builder, Cursor cursor) {
+        try {
+            while (cursor.moveToNext()) {
+                for (int i = 0; i < cursor.getColumnCount(); i++) {
+                    builder.append(cursor.isNull(i) ? "NULL" : cursor.getString(i)).append('|');
+                }
+                builder.append('\n');
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+}
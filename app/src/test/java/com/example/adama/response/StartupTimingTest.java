@@ -0,0 +1,135 @@
+package com.example.adama.response;
+
+import android.content.Intent;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Host-side version of the StartupBenchmark and CalendarFrameBenchmark instrumentation tests.
+ * Robolectric doesn't render, so this times the main-thread work of the launch path and of a
+ * day switch against seeded databases; it is for catching regressions, not for device numbers.
+ * The budgets are loose enough for a slow host; going over one means something on these
+ * paths started scaling with the log.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class StartupTimingTest {
+
+    private static final int[] SIZES = {0, 1000, 20000};
+    private static final int RUNS = 5;
+    private static final int SWITCHES = 30;
+    private static final long TIMEOUT_MS = 10000;
+    // Medians for the launch, the 90th percentile for a day switch
+    private static final long COLD_BUDGET_MS = 2000;
+    private static final long WARM_BUDGET_MS = 1000;
+    private static final long SWITCH_BUDGET_MS = 200;
+
+    @After
+    public void tearDown() throws Exception {
+        DBArguments.closeInstance();
+    }
+
+    @Test
+    public void startToFoodList() throws Exception {
+        for (int rows : SIZES) {
+            SeededDatabase.seed(RuntimeEnvironment.application, rows);
+            int expected = SeededDatabase.rowsOnDay(rows, 0);
+
+            long[] cold = new long[RUNS];
+            long[] warm = new long[RUNS];
+            for (int i = 0; i < RUNS; i++) {
+                DBArguments.closeInstance();
+                cold[i] = launch(expected);
+                warm[i] = launch(expected);
+            }
+            assertBudget("cold start, rows=" + rows, SeededDatabase.median(cold), COLD_BUDGET_MS);
+            assertBudget("warm start, rows=" + rows, SeededDatabase.median(warm), WARM_BUDGET_MS);
+        }
+    }
+
+    @Test
+    public void switchDays() throws Exception {
+        for (int rows : SIZES) {
+            SeededDatabase.seed(RuntimeEnvironment.application, rows);
+            final FoodActivity activity = Robolectric.buildActivity(FoodActivity.class).setup().get();
+            waitFor(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return activity.foodOverview.getCursor() != null;
+                }
+            });
+
+            int today = FoodDate.today();
+            long[] switches = new long[SWITCHES];
+            for (int i = 1; i <= SWITCHES; i++) {
+                final Object before = activity.foodOverview.getCursor();
+                long start = System.nanoTime();
+                activity.currentDate = FoodDate.fromEpochDay(today - i);
+                activity.setview(activity.currentDate);
+                waitFor(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        return activity.foodOverview.getCursor() != before;
+                    }
+                });
+                switches[i - 1] = System.nanoTime() - start;
+                assertEquals(SeededDatabase.rowsOnDay(rows, i), activity.foodOverview.getItemCount());
+            }
+            assertBudget("day switch, rows=" + rows, SeededDatabase.percentile(switches, 90), SWITCH_BUDGET_MS);
+        }
+    }
+
+    // Startactivity -> MainActivity with the stored profile -> FoodActivity showing today
+    private long launch(final int expected) {
+        long start = System.nanoTime();
+        Startactivity first = Robolectric.buildActivity(Startactivity.class).setup().get();
+        first.findViewById(R.id.proceed).performClick();
+        Intent next = shadowOf(first).getNextStartedActivity();
+
+        final MainActivity main = Robolectric.buildActivity(MainActivity.class, next).setup().get();
+        waitFor(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return main.hasUser;
+            }
+        });
+        main.findViewById(R.id.mainbutton).performClick();
+        next = shadowOf(main).getNextStartedActivity();
+
+        final FoodActivity food = Robolectric.buildActivity(FoodActivity.class, next).setup().get();
+        waitFor(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return food.foodOverview.getCursor() != null && food.foodOverview.getItemCount() == expected;
+            }
+        });
+        return System.nanoTime() - start;
+    }
+
+    private static void assertBudget(String what, long nanos, long budgetMs) {
+        assertTrue(what + " took " + nanos / 1000000 + " ms", nanos < budgetMs * 1000000);
+    }
+
+    // Results come back from the DBExecutor threads as posts to the main looper, which
+    // Robolectric only runs when asked
+    private static void waitFor(final Callable<Boolean> condition) {
+        SeededDatabase.waitFor(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                Robolectric.flushForegroundThreadScheduler();
+                return condition.call();
+            }
+        }, TIMEOUT_MS);
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.adama.response;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+
+// A throwaway database file with the app's schema, seeded like a long-running install:
+// ROWS_PER_DAY entries a day going back from FIRST_DAY, all for profile USER.
+final class BenchmarkDatabase {
+
+    static final int ROWS_PER_DAY = 20;
+    static final int FIRST_DAY = FoodDate.toEpochDay(2017, 1, 1);
+    static final int USER = 1;
+
+    private BenchmarkDatabase() {
+    }
+
+    static Connection open(File file) throws SQLException {
+        Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+        Statement statement = connection.createStatement();
+        try {
+            statement.execute("PRAGMA journal_mode = WAL");
+        } finally {
+            statement.close();
+        }
+        return connection;
+    }
+
+    static File create(int rows) throws IOException, SQLException {
+        File file = File.createTempFile("foodbench", ".db");
+        file.deleteOnExit();
+
+        Connection connection = open(file);
+        try {
+            Statement statement = connection.createStatement();
+            try {
+                statement.execute(FoodSql.createFoodTable(FoodSql.TABLE_FOOD));
+                statement.execute(FoodSql.CREATE_FOOD_USER_DATE_INDEX);
+                statement.execute(FoodSql.CREATE_DAILY_TOTALS);
+            } finally {
+                statement.close();
+            }
+
+            connection.setAutoCommit(false);
+            Random random = new Random(42);
+            PreparedStatement insert = connection.prepareStatement(FoodSql.INSERT_FOOD);
+            try {
+                for (int i = 0; i < rows; i++) {
+                    bindFood(insert, random, "food" + random.nextInt(500), FIRST_DAY + i / ROWS_PER_DAY);
+                    insert.addBatch();
+                    if (i % 10000 == 9999) insert.executeBatch();
+                }
+                insert.executeBatch();
+            } finally {
+                insert.close();
+            }
+            statement = connection.createStatement();
+            try {
+                statement.execute(FoodSql.REBUILD_DAILY_TOTALS);
+            } finally {
+                statement.close();
+            }
+            connection.commit();
+        } finally {
+            connection.close();
+        }
+        return file;
+    }
+
+    static int dayCount(int rows) {
+        return (rows + ROWS_PER_DAY - 1) / ROWS_PER_DAY;
+    }
+
+    static void bindFood(PreparedStatement insert, Random random, String name, int day) throws SQLException {
+        insert.setString(1, name);
+        insert.setInt(2, 50 + random.nextInt(600));
+        insert.setInt(3, 1 + random.nextInt(3));
+        insert.setInt(4, day);
+        insert.setInt(5, USER);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.adama.response;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+// CalorieTarget against the if/else chain DBHandler.foo used before it. "profile" looks up
+// the same profile every time, which is what foo does per day shown; "ages" walks 0-63 and
+// both genders, so neither the cache nor the branch predictor gets the same answer twice.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CalorieTargetBenchmark {
+
+    private static final String[] GENDERS = {"Female", "Male"};
+
+    @Param({"profile", "ages"})
+    public String inputs;
+
+    private final CalorieTarget calorieTarget = new CalorieTarget();
+    private int next;
+
+    private int nextAge() {
+        if (inputs.equals("profile")) {
+            return 30;
+        }
+        next = (next + 1) & 127;
+        return next >> 1;
+    }
+
+    private String gender() {
+        return GENDERS[next & 1];
+    }
+
+    @Benchmark
+    public int branches() {
+        int age = nextAge();
+        return legacyTarget(gender(), age);
+    }
+
+    @Benchmark
+    public int cached() {
+        int age = nextAge();
+        return calorieTarget.dailyTarget(gender(), age);
+    }
+
+    @Benchmark
+    public int table() {
+        int age = nextAge();
+        return CalorieTarget.tableTarget(next & 1, age, CalorieTarget.ACTIVITY_SEDENTARY);
+    }
+
+    // The chain DBHandler.foo used before, without the consumed-calories conditions
+    private static int legacyTarget(String gender, int age) {
+        if (age < 9 && gender.matches("Female")) {
+            return 1200;
+        } else if (age < 9 && gender.matches("Male")) {
+            return 1400;
+        } else if (age > 9 && age < 14 && gender.matches("Female")) {
+            return 1600;
+        } else if (age > 9 && age < 14 && gender.matches("Male")) {
+            return 1800;
+        } else if (age > 13 && age < 19 && gender.matches("Female")) {
+            return 1800;
+        } else if (age > 13 && age < 19 && gender.matches("Male")) {
+            return 2200;
+        } else if (age > 18 && age < 31 && gender.matches("Female")) {
+            return 2000;
+        } else if (age > 18 && age < 31 && gender.matches("Male")) {
+            return 2400;
+        } else if (age > 30 && age < 51 && gender.matches("Female")) {
+            return 1800;
+        } else if (age > 30 && age < 50 && gender.matches("Male")) {
+            return 2200;
+        } else if (age > 51 && gender.matches("Female")) {
+            return 1600;
+        } else if (age > 51 && gender.matches("Male")) {
+            return 2000;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.adama.response;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// The statements behind DBArguments.getallfoods, DBHandler.foo and DBArguments.insertFoods,
+// at three table sizes. Inserted rows are deleted after each iteration so the table stays
+// at its seeded size; the rollup keeps their calories, which doesn't change its cost.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FoodDatabaseBenchmark {
+
+    private static final int INSERT_BATCH = 100;
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private File file;
+    private Connection connection;
+    private PreparedStatement selectFoods;
+    private PreparedStatement selectTotal;
+    private PreparedStatement sumFoods;
+    private PreparedStatement insertFood;
+    private PreparedStatement insertTotal;
+    private PreparedStatement addTotal;
+    private final CalorieTarget calorieTarget = new CalorieTarget();
+    private final Random random = new Random(7);
+    private int days;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        file = BenchmarkDatabase.create(rows);
+        days = BenchmarkDatabase.dayCount(rows);
+        connection = BenchmarkDatabase.open(file);
+        connection.setAutoCommit(false);
+        selectFoods = connection.prepareStatement(FoodSql.SELECT_FOODS_FOR_DAY);
+        selectTotal = connection.prepareStatement(FoodSql.SELECT_DAY_TOTAL);
+        // What foo did before the daily_totals rollup, kept as the baseline
+        sumFoods = connection.prepareStatement("SELECT SUM(" + FoodSql.FOOD_CALORIE + " * " + FoodSql.FOOD_QUANTITY
+                + ") FROM " + FoodSql.TABLE_FOOD + " WHERE " + FoodSql.FOOD_USER + " = ? AND " + FoodSql.FOOD_DATE + " = ?");
+        insertFood = connection.prepareStatement(FoodSql.INSERT_FOOD);
+        insertTotal = connection.prepareStatement(FoodSql.INSERT_DAY_TOTAL);
+        addTotal = connection.prepareStatement(FoodSql.ADD_DAY_TOTAL);
+    }
+
+    @TearDown(Level.Iteration)
+    public void removeInserted() throws SQLException {
+        PreparedStatement delete = connection.prepareStatement("DELETE FROM " + FoodSql.TABLE_FOOD
+                + " WHERE " + FoodSql.FOOD_ID + " > ?");
+        try {
+            delete.setInt(1, rows);
+            delete.executeUpdate();
+            connection.commit();
+        } finally {
+            delete.close();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+        file.delete();
+    }
+
+    private int nextDay() {
+        next = (next + 7919) % days;
+        return BenchmarkDatabase.FIRST_DAY + next;
+    }
+
+    @Benchmark
+    public List<FoodObject> dayLookup() throws SQLException {
+        selectFoods.setInt(1, BenchmarkDatabase.USER);
+        selectFoods.setInt(2, nextDay());
+        ResultSet result = selectFoods.executeQuery();
+        List<FoodObject> foods = new ArrayList<FoodObject>();
+        try {
+            while (result.next()) {
+                foods.add(new FoodObject(result.getInt(1), result.getString(2), result.getInt(3),
+                        result.getInt(4), FoodDate.fromEpochDay(result.getInt(5))));
+            }
+        } finally {
+            result.close();
+        }
+        return foods;
+    }
+
+    @Benchmark
+    public int dailySummary() throws SQLException {
+        selectTotal.setInt(1, BenchmarkDatabase.USER);
+        selectTotal.setInt(2, nextDay());
+        ResultSet result = selectTotal.executeQuery();
+        try {
+            int sum = result.next() ? result.getInt(1) : 0;
+            return calorieTarget.dailyTarget("female", 30) - sum;
+        } finally {
+            result.close();
+        }
+    }
+
+    @Benchmark
+    public int dailySummaryScan() throws SQLException {
+        sumFoods.setInt(1, BenchmarkDatabase.USER);
+        sumFoods.setInt(2, nextDay());
+        ResultSet result = sumFoods.executeQuery();
+        try {
+            int sum = result.next() ? result.getInt(1) : 0;
+            return calorieTarget.dailyTarget("female", 30) - sum;
+        } finally {
+            result.close();
+        }
+    }
+
+    // One transaction for the whole batch, like insertFoods
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void bulkInsert() throws SQLException {
+        int day = nextDay();
+        long calories = 0;
+        for (int i = 0; i < INSERT_BATCH; i++) {
+            BenchmarkDatabase.bindFood(insertFood, random, "bench", day);
+            insertFood.executeUpdate();
+            calories += 100;
+        }
+        addToTotal(day, calories);
+        connection.commit();
+    }
+
+    // One transaction per row, like calling InsertFoodTest in a loop
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void singleInserts() throws SQLException {
+        int day = nextDay();
+        for (int i = 0; i < INSERT_BATCH; i++) {
+            BenchmarkDatabase.bindFood(insertFood, random, "bench", day);
+            insertFood.executeUpdate();
+            addToTotal(day, 100);
+            connection.commit();
+        }
+    }
+
+    private void addToTotal(int day, long calories) throws SQLException {
+        insertTotal.setInt(1, BenchmarkDatabase.USER);
+        insertTotal.setInt(2, day);
+        insertTotal.executeUpdate();
+        addTotal.setLong(1, calories);
+        addTotal.setInt(2, BenchmarkDatabase.USER);
+        addTotal.setInt(3, day);
+        addTotal.executeUpdate();
+    }
+}
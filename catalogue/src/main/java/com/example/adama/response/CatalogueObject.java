@@ -0,0 +1,39 @@
+package com.example.adama.response;
+
+public class CatalogueObject {
+
+    // Catalogue information
+    private int id;
+    private String name;
+    private String portion;
+    private int calories;
+
+    public CatalogueObject(int id, String name, String portion, int calories) {
+        this.id = id;
+        this.name = name;
+        this.portion = portion;
+        this.calories = calories;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getPortion() {
+        return portion;
+    }
+
+    public int getCalories() {
+        return calories;
+    }
+
+    // Same "1 Apple: 52 cal" text the list has always shown
+    @Override
+    public String toString() {
+        return portion + " " + name + ": " + calories + " cal";
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.adama.response;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Read-only view of a food catalogue written by {@link FoodCatalogueWriter}.
+ * <p>
+ * The file is mapped rather than read, so opening it costs the same for 70 foods as for
+ * 100k, and nothing is decoded until a search or {@link #get(int)} touches it.
+ * Layout (big-endian):
+ * <pre>
+ * header   magic "FCAT", version, recordCount, keyCount,
+ *          recordsOffset, keysOffset, stringsOffset, reserved
+ * records  recordCount x (nameOffset, portionOffset, calories), sorted by name
+ * keys     keyCount x (wordOffset, recordIndex), sorted by word then record;
+ *          one key per lower-cased word of each name
+ * strings  u16 length + UTF-8 bytes, offsets relative to stringsOffset
+ * </pre>
+ * Safe to use from several threads, since it only does absolute reads.
+ */
+public final class FoodCatalogue {
+
+    public static final int MAGIC = 0x46434154;
+    public static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 32;
+    static final int RECORD_SIZE = 12;
+    static final int KEY_SIZE = 8;
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ByteBuffer buffer;
+    private final int recordCount;
+    private final int keyCount;
+    private final int recordsOffset;
+    private final int keysOffset;
+    private final int stringsOffset;
+
+    private FoodCatalogue(ByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a food catalogue");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported food catalogue version " + buffer.getInt(4));
+        }
+        recordCount = buffer.getInt(8);
+        keyCount = buffer.getInt(12);
+        recordsOffset = buffer.getInt(16);
+        keysOffset = buffer.getInt(20);
+        stringsOffset = buffer.getInt(24);
+        if (recordsOffset + (long) recordCount * RECORD_SIZE > buffer.capacity()
+                || keysOffset + (long) keyCount * KEY_SIZE > buffer.capacity()
+                || stringsOffset > buffer.capacity()) {
+            throw new IllegalArgumentException("Truncated food catalogue");
+        }
+    }
+
+    public static FoodCatalogue wrap(ByteBuffer buffer) {
+        return new FoodCatalogue(buffer.duplicate());
+    }
+
+    public static FoodCatalogue map(FileChannel channel, long position, long size) throws IOException {
+        return new FoodCatalogue(channel.map(FileChannel.MapMode.READ_ONLY, position, size));
+    }
+
+    public int size() {
+        return recordCount;
+    }
+
+    public CatalogueObject get(int index) {
+        if (index < 0 || index >= recordCount) {
+            throw new IndexOutOfBoundsException("Record " + index + " of " + recordCount);
+        }
+        int record = recordsOffset + index * RECORD_SIZE;
+        return new CatalogueObject(index, string(buffer.getInt(record)), string(buffer.getInt(record + 4)),
+                buffer.getInt(record + 8));
+    }
+
+    /**
+     * Foods with a word starting with each word of the query, e.g. "ap pi" finds "Apple Pie".
+     * An empty query returns the first foods by name.
+     */
+    public List<CatalogueObject> search(String query, int limit) {
+        String[] words = words(query);
+        List<CatalogueObject> results = new ArrayList<>();
+        if (words.length == 0) {
+            for (int i = 0; i < recordCount && results.size() < limit; i++) {
+                results.add(get(i));
+            }
+            return results;
+        }
+
+        // Look the longest word up in the index and check the rest against each hit
+        String first = words[0];
+        for (String word : words) {
+            if (word.length() > first.length()) {
+                first = word;
+            }
+        }
+        byte[] prefix = first.getBytes(UTF_8);
+        int[] seen = new int[Math.min(limit, 64)];
+        int seenCount = 0;
+        for (int key = lowerBound(prefix); key < keyCount && results.size() < limit; key++) {
+            int entry = keysOffset + key * KEY_SIZE;
+            if (!startsWith(buffer.getInt(entry), prefix)) {
+                break;
+            }
+            int record = buffer.getInt(entry + 4);
+            if (contains(seen, seenCount, record)) {
+                continue;
+            }
+            CatalogueObject item = get(record);
+            if (matchesAll(item.getName(), words)) {
+                if (seenCount == seen.length) {
+                    seen = Arrays.copyOf(seen, seenCount * 2);
+                }
+                seen[seenCount++] = record;
+                results.add(item);
+            }
+        }
+        return results;
+    }
+
+    // First key whose word is >= prefix
+    private int lowerBound(byte[] prefix) {
+        int low = 0;
+        int high = keyCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(buffer.getInt(keysOffset + mid * KEY_SIZE), prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int compare(int stringOffset, byte[] other) {
+        int position = stringsOffset + stringOffset;
+        int length = buffer.getShort(position) & 0xffff;
+        position += 2;
+        int common = Math.min(length, other.length);
+        for (int i = 0; i < common; i++) {
+            int diff = (buffer.get(position + i) & 0xff) - (other[i] & 0xff);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return length - other.length;
+    }
+
+    private boolean startsWith(int stringOffset, byte[] prefix) {
+        int position = stringsOffset + stringOffset;
+        int length = buffer.getShort(position) & 0xffff;
+        if (length < prefix.length) {
+            return false;
+        }
+        position += 2;
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(position + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String string(int stringOffset) {
+        int position = stringsOffset + stringOffset;
+        int length = buffer.getShort(position) & 0xffff;
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(position + 2 + i);
+        }
+        return new String(bytes, UTF_8);
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matchesAll(String name, String[] words) {
+        String[] nameWords = words(name);
+        for (String word : words) {
+            boolean found = false;
+            for (String nameWord : nameWords) {
+                if (nameWord.startsWith(word)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Lower-cased words of letters and digits; the writer splits names the same way
+    static String[] words(String text) {
+        if (text == null) {
+            return new String[0];
+        }
+        List<String> words = new ArrayList<>();
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words.toArray(new String[words.size()]);
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.adama.response;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the binary catalogue read by {@link FoodCatalogue}. Run at build time by the app's
+ * generateFoodCatalogue task: {@code FoodCatalogueWriter <catalogue.csv> <out.fcat>}.
+ * The CSV has a header row followed by name,portion,calories rows.
+ */
+public final class FoodCatalogueWriter {
+
+    private FoodCatalogueWriter() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: FoodCatalogueWriter <catalogue.csv> <out.fcat>");
+            System.exit(2);
+        }
+        List<CatalogueObject> items;
+        Reader reader = new InputStreamReader(new FileInputStream(args[0]), FoodCatalogue.UTF_8);
+        try {
+            items = readCsv(reader);
+        } finally {
+            reader.close();
+        }
+        File out = new File(args[1]);
+        File parent = out.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Could not create " + parent);
+        }
+        FileOutputStream stream = new FileOutputStream(out);
+        try {
+            write(items, stream.getChannel());
+        } finally {
+            stream.close();
+        }
+        System.out.println("Wrote " + items.size() + " foods to " + out);
+    }
+
+    public static List<CatalogueObject> readCsv(Reader reader) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+        List<CatalogueObject> items = new ArrayList<>();
+        // Skip the header row
+        String line = lines.readLine();
+        int number = 1;
+        while ((line = lines.readLine()) != null) {
+            number++;
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            String[] fields = splitCsv(line);
+            if (fields.length < 3) {
+                throw new IOException("Line " + number + ": expected name,portion,calories");
+            }
+            try {
+                items.add(new CatalogueObject(items.size(), fields[0].trim(), fields[1].trim(),
+                        Integer.parseInt(fields[2].trim())));
+            } catch (NumberFormatException e) {
+                throw new IOException("Line " + number + ": bad calories '" + fields[2] + "'");
+            }
+        }
+        return items;
+    }
+
+    // Comma separated, with double quotes around fields that contain commas
+    static String[] splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (c == ',' && !quoted) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[fields.size()]);
+    }
+
+    public static void write(List<CatalogueObject> foods, FileChannel channel) throws IOException {
+        ByteBuffer buffer = build(foods);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    public static ByteBuffer build(List<CatalogueObject> foods) {
+        List<CatalogueObject> records = new ArrayList<>(foods);
+        Collections.sort(records, new Comparator<CatalogueObject>() {
+            @Override
+            public int compare(CatalogueObject a, CatalogueObject b) {
+                int byName = a.getName().compareToIgnoreCase(b.getName());
+                return byName != 0 ? byName : a.getName().compareTo(b.getName());
+            }
+        });
+
+        StringPool strings = new StringPool();
+        int[] names = new int[records.size()];
+        int[] portions = new int[records.size()];
+        final List<byte[]> keyWords = new ArrayList<>();
+        final List<Integer> keyWordOffsets = new ArrayList<>();
+        final List<Integer> keyRecords = new ArrayList<>();
+        for (int i = 0; i < records.size(); i++) {
+            CatalogueObject food = records.get(i);
+            names[i] = strings.add(food.getName());
+            portions[i] = strings.add(food.getPortion() == null ? "" : food.getPortion());
+            for (String word : FoodCatalogue.words(food.getName())) {
+                keyWords.add(word.getBytes(FoodCatalogue.UTF_8));
+                keyWordOffsets.add(strings.add(word));
+                keyRecords.add(i);
+            }
+        }
+
+        // Keys sort by the UTF-8 bytes of the word, which is the order the reader's binary search compares in
+        Integer[] order = new Integer[keyWords.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                int byWord = compareBytes(keyWords.get(a), keyWords.get(b));
+                return byWord != 0 ? byWord : keyRecords.get(a) - keyRecords.get(b);
+            }
+        });
+
+        int recordsOffset = FoodCatalogue.HEADER_SIZE;
+        int keysOffset = recordsOffset + records.size() * FoodCatalogue.RECORD_SIZE;
+        int stringsOffset = keysOffset + order.length * FoodCatalogue.KEY_SIZE;
+        ByteBuffer buffer = ByteBuffer.allocate(stringsOffset + strings.size());
+        buffer.putInt(FoodCatalogue.MAGIC)
+                .putInt(FoodCatalogue.VERSION)
+                .putInt(records.size())
+                .putInt(order.length)
+                .putInt(recordsOffset)
+                .putInt(keysOffset)
+                .putInt(stringsOffset)
+                .putInt(0);
+        for (int i = 0; i < records.size(); i++) {
+            buffer.putInt(names[i]).putInt(portions[i]).putInt(records.get(i).getCalories());
+        }
+        for (Integer key : order) {
+            buffer.putInt(keyWordOffsets.get(key)).putInt(keyRecords.get(key));
+        }
+        strings.writeTo(buffer);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static int compareBytes(byte[] a, byte[] b) {
+        int common = Math.min(a.length, b.length);
+        for (int i = 0; i < common; i++) {
+            int diff = (a[i] & 0xff) - (b[i] & 0xff);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return a.length - b.length;
+    }
+
+    // Each distinct string is stored once; portions and common words repeat a lot
+    private static class StringPool {
+        private final Map<String, Integer> offsets = new HashMap<>();
+        private final List<byte[]> entries = new ArrayList<>();
+        private int size;
+
+        int add(String value) {
+            Integer offset = offsets.get(value);
+            if (offset != null) {
+                return offset;
+            }
+            byte[] bytes = value.getBytes(FoodCatalogue.UTF_8);
+            if (bytes.length > 0xffff) {
+                throw new IllegalArgumentException("String too long for the catalogue: " + value);
+            }
+            offsets.put(value, size);
+            entries.add(bytes);
+            int start = size;
+            size += 2 + bytes.length;
+            return start;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void writeTo(ByteBuffer buffer) {
+            for (byte[] bytes : entries) {
+                buffer.putShort((short) bytes.length).put(bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.adama.response;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FoodCatalogueTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final String CSV = "name,portion,calories\n"
+            + "Apple,1,52\n"
+            + "Pineapple,1 cup,75\n"
+            + "\"Pie, Apple\",1 slice,300\n"
+            + "Vanilla Ice Cream (11% fat),1 cup,270\n"
+            + "Banana,1,105\n";
+
+    @Test
+    public void readsRecordsSortedByName() throws Exception {
+        FoodCatalogue catalogue = FoodCatalogue.wrap(FoodCatalogueWriter.build(
+                FoodCatalogueWriter.readCsv(new StringReader(CSV))));
+
+        assertEquals(5, catalogue.size());
+        assertEquals("Apple", catalogue.get(0).getName());
+        assertEquals("Banana", catalogue.get(1).getName());
+        assertEquals("Pie, Apple", catalogue.get(2).getName());
+        assertEquals("1 slice", catalogue.get(2).getPortion());
+        assertEquals(300, catalogue.get(2).getCalories());
+    }
+
+    @Test
+    public void searchesWordPrefixes() throws Exception {
+        FoodCatalogue catalogue = FoodCatalogue.wrap(FoodCatalogueWriter.build(
+                FoodCatalogueWriter.readCsv(new StringReader(CSV))));
+
+        assertEquals(names("Apple", "Pie, Apple"), names(catalogue.search("app", 10)));
+        assertEquals(names("Pie, Apple"), names(catalogue.search("ap pi", 10)));
+        assertEquals(names("Pie, Apple", "Pineapple"), names(catalogue.search("PI", 10)));
+        assertEquals(names("Vanilla Ice Cream (11% fat)"), names(catalogue.search("cream", 10)));
+        assertEquals(names("Vanilla Ice Cream (11% fat)"), names(catalogue.search("11", 10)));
+        assertTrue(catalogue.search("kiwi", 10).isEmpty());
+        assertEquals(2, catalogue.search("", 2).size());
+        assertEquals(1, catalogue.search("a", 1).size());
+    }
+
+    @Test
+    public void rejectsOtherFiles() {
+        try {
+            FoodCatalogue.wrap(ByteBuffer.allocate(64));
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    // Opening maps the file without reading it, so only lookups should cost anything
+    @Test
+    public void mapsLargeCatalogueLazily() throws Exception {
+        List<CatalogueObject> foods = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            foods.add(new CatalogueObject(i, "Food " + Integer.toString(i, 36) + " item" + i, "1 portion", i % 900));
+        }
+        File file = folder.newFile("foods.fcat");
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            FoodCatalogueWriter.write(foods, out.getChannel());
+        } finally {
+            out.close();
+        }
+
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = in.getChannel();
+            long start = System.nanoTime();
+            FoodCatalogue catalogue = FoodCatalogue.map(channel, 0, channel.size());
+            long opened = System.nanoTime() - start;
+            assertEquals(100000, catalogue.size());
+
+            List<CatalogueObject> hits = catalogue.search("item99999", 10);
+            assertEquals(1, hits.size());
+            assertEquals(99999 % 900, hits.get(0).getCalories());
+
+            assertTrue("Took " + opened / 1000000 + " ms to open", opened < 50000000L);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static List<String> names(String... names) {
+        List<String> list = new ArrayList<>();
+        for (String name : names) {
+            list.add(name);
+        }
+        return list;
+    }
+
+    private static List<String> names(List<CatalogueObject> foods) {
+        List<String> list = new ArrayList<>();
+        for (CatalogueObject food : foods) {
+            list.add(food.getName());
+        }
+        return list;
+    }
+}